@@ -0,0 +1,104 @@
+package com.tandrade.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Batch parsing against parallelStream().map(UrlParser::parse), scale threads to compare speedups:
+// mvn -Pjmh test-compile exec:exec -Djmh.args="UrlBatchBenchmark -p threads=1,8,32"
+// The gc profiler output compares the allocation of a UrlBatch with that of LazyUrl[], and the countByHost
+// benchmarks the cost of counting hosts over each of them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBatchBenchmark {
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"100000"})
+    public int size;
+
+    private String[] urls;
+    private List<String> urlList;
+    private ForkJoinPool pool;
+    private UrlBatchParser parser;
+    private LazyUrl[] parsedUrls;
+    private UrlBatch batch;
+
+    @Setup
+    public void setUp() {
+        String[] inputs = BenchmarkUrls.get("short");
+        urls = new String[size];
+        for (int i = 0; i < size; i++) {
+            urls[i] = inputs[i % inputs.length];
+        }
+        urlList = Arrays.asList(urls);
+        pool = new ForkJoinPool(threads);
+        parser = new UrlBatchParser(pool);
+        parsedUrls = parser.parse(urls);
+        batch = parser.parseBatch(urls);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object batchParse() {
+        return parser.parse(urls);
+    }
+
+    @Benchmark
+    public Object parallelStream() throws Exception {
+        return pool.submit(() -> urlList.parallelStream().map(url -> {
+            try {
+                return UrlParser.parse(url);
+            } catch (MalformedURLException e) {
+                return null;
+            }
+        }).collect(Collectors.toList())).get();
+    }
+
+    @Benchmark
+    public Object columnarParse() {
+        return parser.parseBatch(urls);
+    }
+
+    @Benchmark
+    public Object countByHostObjects() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (LazyUrl url : parsedUrls) {
+            if (url != null && url.getHostname() != null) {
+                counts.merge(url.getHostname(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public Object countByHostColumnar() {
+        return batch.countByHost();
+    }
+}
@@ -0,0 +1,198 @@
+package com.tandrade.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Run with: mvn -Pjmh test-compile exec:exec
+// The gc profiler is always enabled, see gc.alloc.rate.norm for the bytes allocated per operation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlParserBenchmark {
+    @Param({"short", "longQuery", "ipv6", "userinfo", "malformed"})
+    public String input;
+
+    private String[] urls;
+    private byte[][] bytes;
+    private int next;
+    private final ParseStatus status = new ParseStatus();
+    private final CachingUrlParser cache = new CachingUrlParser(1024);
+    private final ProfiledUrlParser profiledParser = new ProfiledUrlParser();
+    private final UrlFingerprinter fingerprinter = new UrlFingerprinter();
+    private final UrlBuilder builder = new UrlBuilder();
+    private final StringBuilder rewritten = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        urls = BenchmarkUrls.get(input);
+        bytes = new byte[urls.length][];
+        for (int i = 0; i < urls.length; i++) {
+            bytes[i] = urls[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public Object parse() {
+        String url = urls[next++ & (urls.length - 1)];
+
+        try {
+            return UrlParser.parse(url);
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    // Every input repeats, so after warmup this measures cache hits
+    @Benchmark
+    public Object cachedParse() {
+        try {
+            return cache.parse(urls[next++ & (urls.length - 1)]);
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object tryParse() {
+        Url parsedUrl = UrlParser.tryParse(urls[next++ & (urls.length - 1)], status);
+        return parsedUrl != null ? parsedUrl : status.getFailedComponent();
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return UrlParser.isValid(urls[next++ & (urls.length - 1)]);
+    }
+
+    // With the http and https profiles, which reject the userinfo input
+    @Benchmark
+    public boolean isValidProfiled() {
+        return profiledParser.isValid(urls[next++ & (urls.length - 1)]);
+    }
+
+    // The routing tier only reads the host and the path
+    @Benchmark
+    public Object parseHostAndPath(Blackhole blackhole) {
+        String url = urls[next++ & (urls.length - 1)];
+
+        try {
+            Url parsedUrl = UrlParser.parse(url);
+            blackhole.consume(parsedUrl.getHostname());
+            return parsedUrl.getPath();
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseLazyHostAndPath(Blackhole blackhole) {
+        String url = urls[next++ & (urls.length - 1)];
+
+        try {
+            Url parsedUrl = UrlParser.parseLazy(url);
+            blackhole.consume(parsedUrl.getHostname());
+            return parsedUrl.getPath();
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    // Against decoding the bytes into a String first, as callers had to before
+    @Benchmark
+    public Object decodeAndParseHostAndPath(Blackhole blackhole) {
+        byte[] url = bytes[next++ & (bytes.length - 1)];
+
+        try {
+            Url parsedUrl = UrlParser.parse(new String(url, StandardCharsets.US_ASCII));
+            blackhole.consume(parsedUrl.getHostname());
+            return parsedUrl.getPath();
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseBytesHostAndPath(Blackhole blackhole) {
+        byte[] url = bytes[next++ & (bytes.length - 1)];
+
+        try {
+            LazyUrl parsedUrl = UrlParser.parse(url, 0, url.length);
+            blackhole.consume(parsedUrl.getComponent(UrlComponent.HOST));
+            return parsedUrl.getComponent(UrlComponent.PATH);
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        Url parsedUrl = UrlParser.tryParse(urls[next++ & (urls.length - 1)], status);
+        return parsedUrl != null ? fingerprinter.fingerprint(parsedUrl) : 0;
+    }
+
+    // Against rebuilding a canonical String and hashing it, as the crawler did before
+    @Benchmark
+    public long rebuildAndHash() {
+        try {
+            Url parsedUrl = UrlParser.parse(urls[next++ & (urls.length - 1)]);
+            StringBuilder canonical = new StringBuilder(parsedUrl.getProtocol().toLowerCase(Locale.ROOT)).append(':');
+            if (parsedUrl.getHostname() != null) {
+                canonical.append("//").append(parsedUrl.getHostname().toLowerCase(Locale.ROOT)).append(':').append(parsedUrl.getPort());
+            }
+            canonical.append(parsedUrl.getPath());
+            if (parsedUrl.getArguments() != null) {
+                new TreeMap<>(parsedUrl.getArguments()).forEach((name, value) -> canonical.append('&').append(name).append('=').append(value));
+            }
+            return canonical.toString().hashCode();
+        } catch (MalformedURLException e) {
+            return 0;
+        }
+    }
+
+    // The proxy points every URL to another host
+    @Benchmark
+    public Object rewriteHost() {
+        Url parsedUrl = UrlParser.tryParse(urls[next++ & (urls.length - 1)], status);
+        if (parsedUrl == null) {
+            return status.getFailedComponent();
+        }
+
+        rewritten.setLength(0);
+        return builder.reset(parsedUrl).setHost("internal.example.net").writeTo(rewritten);
+    }
+
+    // Against concatenating the components by hand, as the proxy did before
+    @Benchmark
+    public Object concatenateHost() {
+        try {
+            Url parsedUrl = UrlParser.parse(urls[next++ & (urls.length - 1)]);
+            String url = parsedUrl.getProtocol() + ":" + (parsedUrl.getHostname() != null ? "//internal.example.net" : "") + parsedUrl.getPath();
+            if (parsedUrl.getArguments() != null) {
+                StringBuilder query = new StringBuilder();
+                parsedUrl.getArguments().forEach((name, value) -> query.append(query.length() == 0 ? '?' : '&').append(name).append(value != null ? "=" + value : ""));
+                url += query;
+            }
+            return parsedUrl.getDocumentPart() != null ? url + "#" + parsedUrl.getDocumentPart() : url;
+        } catch (MalformedURLException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tandrade.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of recording metrics: off, totals only, and totals with every stage timed
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlParserMetricsBenchmark {
+    @Param({"short", "longQuery", "malformed"})
+    public String input;
+
+    @Param({"off", "on", "stages"})
+    public String metrics;
+
+    private String[] urls;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        urls = BenchmarkUrls.get(input);
+        if (!metrics.equals("off")) {
+            UrlParser.setMetrics(new UrlParserMetrics(metrics.equals("stages")));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        UrlParser.setMetrics(null);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return UrlParser.isValid(urls[next++ & (urls.length - 1)]);
+    }
+}
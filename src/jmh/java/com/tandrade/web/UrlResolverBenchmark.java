@@ -0,0 +1,64 @@
+package com.tandrade.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+// Resolving the links of a page against its base URL
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlResolverBenchmark {
+    private static final String BASE = "https://www.example.org/docs/guide/index.html?lang=en";
+    private static final String[] HREFS = {
+            "install.html",
+            "../api/UrlParser.html#parse",
+            "/search?q=url+parser",
+            "https://cdn.example.net/style.css",
+            "./images/diagram.png",
+            "#section-2",
+            "//static.example.org/app.js",
+            "?lang=fr"
+    };
+
+    private UrlResolver resolver;
+    private URI baseUri;
+    private int next;
+
+    @Setup
+    public void setUp() throws MalformedURLException, URISyntaxException {
+        resolver = new UrlResolver(UrlParser.parseLazy(BASE));
+        baseUri = new URI(BASE);
+    }
+
+    @Benchmark
+    public Object resolve() throws MalformedURLException {
+        return resolver.resolve(HREFS[next++ & (HREFS.length - 1)]);
+    }
+
+    @Benchmark
+    public Object resolveBatch() {
+        return resolver.resolve(HREFS);
+    }
+
+    // Against resolving with java.net.URI and parsing the result, as the link extractor did before
+    @Benchmark
+    public Object resolveWithUri() throws MalformedURLException, URISyntaxException {
+        return UrlParser.parse(baseUri.resolve(new URI(HREFS[next++ & (HREFS.length - 1)])).toString());
+    }
+}
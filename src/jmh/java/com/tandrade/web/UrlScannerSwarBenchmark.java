@@ -0,0 +1,62 @@
+package com.tandrade.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Scanning byte input 8 bytes at a time against one char at a time
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlScannerSwarBenchmark {
+    @Param({"short", "longQuery"})
+    public String input;
+
+    @Param({"true", "false"})
+    public boolean swar;
+
+    private byte[][] bytes;
+    private ByteBuffer[] direct;
+    private int next;
+    private UrlScanner scanner;
+
+    @Setup
+    public void setUp() {
+        String[] urls = BenchmarkUrls.get(input);
+        bytes = new byte[urls.length][];
+        direct = new ByteBuffer[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            bytes[i] = urls[i].getBytes(StandardCharsets.US_ASCII);
+            direct[i] = ByteBuffer.allocateDirect(bytes[i].length);
+            direct[i].put(bytes[i]).flip();
+        }
+        scanner = new UrlScanner(swar);
+    }
+
+    @Benchmark
+    public boolean isValidBytes() {
+        byte[] url = bytes[next++ & (bytes.length - 1)];
+        return scanner.scan(new ByteSequence(url, 0, url.length));
+    }
+
+    // As UrlFileParser reads mapped files
+    @Benchmark
+    public boolean isValidDirectBuffer() {
+        return scanner.scan(new ByteSequence(direct[next++ & (direct.length - 1)]));
+    }
+}
@@ -0,0 +1,108 @@
+package com.tandrade.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// CharSequence view over ASCII bytes, either a byte[] slice or the remaining bytes of a (possibly direct)
+// ByteBuffer. Each byte is one char, so any non ASCII byte ends up as a character no URL component accepts.
+// Nothing is copied until toString is called, and the bytes must not change while the view is in use.
+public final class ByteSequence implements CharSequence {
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    public ByteSequence(byte[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > array.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + array.length);
+        }
+        this.array = array;
+        this.buffer = null;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // Covers the bytes between the position and the limit of buffer, without moving them
+    public ByteSequence(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.array = buffer.array();
+            this.buffer = null;
+            this.offset = buffer.arrayOffset() + buffer.position();
+        } else {
+            this.array = null;
+            this.buffer = buffer;
+            this.offset = buffer.position();
+        }
+        this.length = buffer.remaining();
+    }
+
+    ByteSequence(byte[] array, ByteBuffer buffer, int offset, int length) {
+        this.array = array;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // Index of the first char in the backing array, or in the backing buffer when it has no accessible array
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        if (array != null) {
+            return (char) (array[offset + index] & 0xff);
+        }
+        return (char) (buffer.get(offset + index) & 0xff);
+    }
+
+    @Override
+    public ByteSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new ByteSequence(array, buffer, offset + start, end - start);
+    }
+
+    // null when the bytes are in a buffer without accessible array
+    byte[] getArray() {
+        return array;
+    }
+
+    // null when the bytes are in an array
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    // Puts the bytes of [start, end) into target as they are
+    void copyTo(int start, int end, ByteBuffer target) {
+        if (array != null) {
+            target.put(array, offset + start, end - start);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            target.put(buffer.get(offset + i));
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (array != null) {
+            return new String(array, offset, length, StandardCharsets.ISO_8859_1);
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
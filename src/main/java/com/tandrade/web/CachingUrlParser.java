@@ -0,0 +1,195 @@
+package com.tandrade.web;
+
+import java.net.MalformedURLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// UrlParser.parse behind a bounded, thread safe cache keyed by the raw URL. Entries are split in segments
+// with their own lock, each one evicting its least recently used entry. With TINY_LFU a new URL only takes
+// the place of that entry when it has been requested more often, as estimated by a count-min sketch, which
+// keeps one-off URLs from flushing the popular ones. Malformed URLs are not cached.
+public final class CachingUrlParser {
+    public enum Eviction {
+        LRU,
+        TINY_LFU
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingUrlParser(int maximumSize) {
+        this(maximumSize, Eviction.TINY_LFU);
+    }
+
+    public CachingUrlParser(int maximumSize, Eviction eviction) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Invalid maximum size specified: " + maximumSize);
+        }
+
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * MIN_SEGMENT_SIZE < maximumSize) {
+            count <<= 1;
+        }
+
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the remainder so the segments add up to maximumSize
+            int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+            segments[i] = new Segment(capacity, eviction == Eviction.TINY_LFU);
+        }
+    }
+
+    public Url parse(String url) throws MalformedURLException {
+        int hash = spread(url.hashCode());
+        Segment segment = segments[(hash >>> 16) & (segments.length - 1)];
+
+        Url parsedUrl = segment.get(url, hash);
+        if (parsedUrl != null) {
+            hits.increment();
+            return parsedUrl;
+        }
+
+        misses.increment();
+        parsedUrl = UrlParser.parse(url);
+        if (segment.put(url, hash, parsedUrl)) {
+            evictions.increment();
+        }
+        return parsedUrl;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Entries dropped to make room, plus new URLs TINY_LFU decided not to keep
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 15);
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<String, Url> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+        private final FrequencySketch sketch;
+
+        Segment(int capacity, boolean admission) {
+            this.capacity = capacity;
+            this.sketch = admission ? new FrequencySketch(capacity) : null;
+        }
+
+        synchronized Url get(String url, int hash) {
+            if (sketch != null) {
+                sketch.increment(hash);
+            }
+            return entries.get(url);
+        }
+
+        // Returns whether an entry, either the eldest one or url itself, had to be dropped
+        synchronized boolean put(String url, int hash, Url parsedUrl) {
+            if (entries.containsKey(url)) {
+                return false;
+            }
+            if (entries.size() < capacity) {
+                entries.put(url, parsedUrl);
+                return false;
+            }
+
+            Iterator<Map.Entry<String, Url>> iterator = entries.entrySet().iterator();
+            String eldest = iterator.next().getKey();
+            if (sketch != null && sketch.frequency(hash) <= sketch.frequency(spread(eldest.hashCode()))) {
+                return true;
+            }
+            iterator.remove();
+            entries.put(url, parsedUrl);
+            return true;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    // Count-min sketch of 4 rows of 4 * capacity counters saturating at 15. All counters are halved every 10 * capacity
+    // increments so the estimates follow recent popularity.
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+        private final byte[] counters;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = 16;
+            while (width < 4 * capacity) {
+                width <<= 1;
+            }
+            this.width = width;
+            this.counters = new byte[SEEDS.length * width];
+            this.sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        void increment(int hash) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                }
+            }
+
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return row * width + ((int) h & (width - 1));
+        }
+    }
+}
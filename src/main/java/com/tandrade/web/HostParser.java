@@ -0,0 +1,150 @@
+package com.tandrade.web;
+
+// Classifies a host and decodes IP literals to numbers in a single scan, without InetAddress or any DNS
+// lookup. The decoded address is left in the fields of the last successful call.
+final class HostParser {
+    // Network byte order, the first octet in the most significant byte
+    int ipv4;
+    // Groups 1 to 4 and 5 to 8, the first group in the most significant bits
+    long ipv6High;
+    long ipv6Low;
+
+    private final int[] groups = new int[8];
+
+    // host must be valid for UrlParser.hostname
+    HostType classify(CharSequence host, int start, int end) {
+        if (end - start >= 2 && host.charAt(start) == '[') {
+            return parseIpv6(host, start + 1, end - 1) ? HostType.IPV6 : HostType.REG_NAME;
+        }
+        return parseIpv4(host, start, end) ? HostType.IPV4 : HostType.REG_NAME;
+    }
+
+    // dec-octet "." dec-octet "." dec-octet "." dec-octet
+    boolean parseIpv4(CharSequence host, int start, int end) {
+        int address = 0;
+        int i = start;
+
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= end || host.charAt(i) != '.') {
+                    return false;
+                }
+                i++;
+            }
+
+            int digitsStart = i;
+            int value = 0;
+            while (i < end && i - digitsStart < 3 && isDigit(host.charAt(i))) {
+                value = value * 10 + host.charAt(i) - '0';
+                i++;
+            }
+            int digits = i - digitsStart;
+            if (digits == 0 || value > 255 || (digits > 1 && host.charAt(digitsStart) == '0')) {
+                return false;
+            }
+            address = address << 8 | value;
+        }
+
+        if (i != end) {
+            return false;
+        }
+        ipv4 = address;
+        return true;
+    }
+
+    // IPv6address of RFC 3986: eight h16 groups, or fewer with a single "::" standing for the missing ones,
+    // where the last two may be written as an IPv4 address
+    boolean parseIpv6(CharSequence host, int start, int end) {
+        int count = 0;
+        int compressed = -1;
+        int i = start;
+
+        if (end - start >= 2 && host.charAt(i) == ':' && host.charAt(i + 1) == ':') {
+            compressed = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (count == 8) {
+                return false;
+            }
+
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 4 && hexValue(host.charAt(i)) >= 0) {
+                value = value << 4 | hexValue(host.charAt(i));
+                i++;
+            }
+
+            if (i < end && host.charAt(i) == '.') {
+                if (count > 6 || !parseIpv4(host, groupStart, end)) {
+                    return false;
+                }
+                groups[count++] = ipv4 >>> 16;
+                groups[count++] = ipv4 & 0xffff;
+                i = end;
+                break;
+            }
+            if (i == groupStart) {
+                return false;
+            }
+            groups[count++] = value;
+
+            if (i == end) {
+                break;
+            }
+            if (host.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < end && host.charAt(i) == ':') {
+                if (compressed >= 0) {
+                    return false;
+                }
+                compressed = count;
+                i++;
+            } else if (i == end) {
+                return false;
+            }
+        }
+
+        if (compressed < 0 ? count != 8 : count > 7) {
+            return false;
+        }
+
+        long high = 0;
+        long low = 0;
+        int missing = 8 - count;
+        for (int group = 0, source = 0; group < 8; group++) {
+            int value = 0;
+            if (compressed < 0 || group < compressed || group >= compressed + missing) {
+                value = groups[source++];
+            }
+            if (group < 4) {
+                high = high << 16 | value;
+            } else {
+                low = low << 16 | value;
+            }
+        }
+        ipv6High = high;
+        ipv6Low = low;
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,8 @@
+package com.tandrade.web;
+
+// Kinds of host of RFC 3986, section 3.2.2
+public enum HostType {
+    REG_NAME,
+    IPV4,
+    IPV6
+}
@@ -0,0 +1,334 @@
+package com.tandrade.web;
+
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Parses a URL that arrives in chunks, such as the request target read off a socket. Every char fed is run
+// through the same component state machine as UrlScanner, kept between calls, so a URL that can no longer
+// be valid is rejected by the feed call that brings the offending char: a bad scheme char, a '/' before the
+// scheme ends, a non digit in a port after the userinfo, a bad escape and so on. Only such definite
+// failures are reported early, feed never rejects a prefix that some ending would make valid. The chars are
+// kept in a buffer reused across reset calls, and finish rescans them, so its result and its errors are
+// exactly those of UrlParser.parse over the concatenated chunks. Not thread safe.
+public final class IncrementalUrlParser {
+    private static final int SCHEME = 0;
+    // After the ':' of the scheme
+    private static final int SCHEME_END = 1;
+    // After ":/", which either starts the path or the "//" of the authority
+    private static final int SLASH = 2;
+    private static final int AUTHORITY = 3;
+    private static final int PATH = 4;
+    private static final int QUERY = 5;
+    private static final int FRAGMENT = 6;
+
+    private final Chars chars = new Chars();
+    private final UrlScanner scanner = new UrlScanner();
+    private final ParseStatus status = new ParseStatus();
+
+    private int state;
+    // Hex digits still expected by the current escape, and the index of its '%'
+    private int pendingHex;
+    private int escapeStart;
+
+    // Authority being read, indexes are -1 until seen
+    private int authorityStart;
+    private int at;
+    private int colon;
+    // First ':' since the authority start or the '@', IP literals included
+    private int firstColon;
+    // Whether the host after the '@' is an IP literal, whose colons do not start the port
+    private boolean literal;
+    // Whether the URL was rejected before any '@', so a later '@' shows the offending char was in the userinfo
+    private boolean beforeAt;
+
+    public IncrementalUrlParser() {
+        reset();
+    }
+
+    // Forgets the chars fed so far, keeping the buffer
+    public IncrementalUrlParser reset() {
+        chars.length = 0;
+        status.succeed();
+        state = SCHEME;
+        pendingHex = 0;
+        escapeStart = -1;
+        authorityStart = at = colon = firstColon = -1;
+        literal = false;
+        beforeAt = false;
+        return this;
+    }
+
+    // Appends chunk, returning false once the URL is known to be invalid. Chars fed after that are still
+    // kept, so finish reports the same error parse would.
+    public boolean feed(CharSequence chunk) {
+        int n = chunk.length();
+        int start = chars.length;
+        chars.ensureCapacity(start + n);
+        for (int i = 0; i < n; i++) {
+            chars.array[start + i] = chunk.charAt(i);
+        }
+        chars.length = start + n;
+        return advance(start);
+    }
+
+    // Appends the remaining bytes of chunk as Latin-1 chars, moving its position to its limit
+    public boolean feed(ByteBuffer chunk) {
+        int n = chunk.remaining();
+        int start = chars.length;
+        chars.ensureCapacity(start + n);
+        for (int i = 0; i < n; i++) {
+            chars.array[start + i] = (char) (chunk.get() & 0xff);
+        }
+        chars.length = start + n;
+        return advance(start);
+    }
+
+    public boolean isRejected() {
+        return !status.isValid();
+    }
+
+    // Where the URL was rejected. The component is the one the offending char falls in, which for a URL
+    // with several errors may not be the one parse reports. Before any '@' a char of the authority is taken
+    // to be in the host, or the port after a ':', until an '@' fed later shows it was in the userinfo.
+    public ParseStatus getStatus() {
+        return status;
+    }
+
+    // Number of chars fed since the last reset
+    public int length() {
+        return chars.length;
+    }
+
+    // Parses the chars fed so far like UrlParser.parse
+    public LazyUrl finish() throws MalformedURLException {
+        String url = chars.toString();
+        if (!UrlParser.scan(scanner, url)) {
+            throw UrlParser.failure(url, scanner);
+        }
+        return new LazyUrl(url, scanner);
+    }
+
+    // Same as finish, reporting a malformed URL through status and returning null instead of throwing
+    public LazyUrl tryFinish(ParseStatus status) {
+        return UrlParser.tryParse(chars.toString(), status);
+    }
+
+    private boolean advance(int start) {
+        char[] array = chars.array;
+        int n = chars.length;
+        for (int i = start; i < n && (status.isValid() || beforeAt); i++) {
+            char c = array[i];
+            if (!status.isValid()) {
+                userinfo(c);
+                continue;
+            }
+            switch (state) {
+                case SCHEME:
+                    if (c == ':') {
+                        if (i == 0) {
+                            status.fail(UrlComponent.URL, i);
+                        }
+                        state = SCHEME_END;
+                    } else if (c == '/' || c == '?' || c == '#') {
+                        status.fail(UrlComponent.URL, i);
+                    } else if (!UrlScanner.is(c, i == 0 ? UrlScanner.ALPHA : UrlScanner.SCHEME)) {
+                        status.fail(UrlComponent.SCHEME, i);
+                    }
+                    break;
+                case SCHEME_END:
+                    if (c == '/') {
+                        state = SLASH;
+                    } else {
+                        state = PATH;
+                        path(c, i);
+                    }
+                    break;
+                case SLASH:
+                    if (c == '/') {
+                        state = AUTHORITY;
+                        authorityStart = i + 1;
+                    } else {
+                        state = PATH;
+                        path(c, i);
+                    }
+                    break;
+                case AUTHORITY:
+                    authority(c, i);
+                    break;
+                case PATH:
+                    path(c, i);
+                    break;
+                case QUERY:
+                    query(c, i);
+                    break;
+                default:
+                    fragment(c, i);
+                    break;
+            }
+        }
+        return status.isValid();
+    }
+
+    private void authority(char c, int i) {
+        if (pendingHex > 0) {
+            escape(c, colon >= 0 ? UrlComponent.PORT : UrlComponent.HOST);
+            beforeAt = at < 0 && !status.isValid();
+            return;
+        }
+
+        if (c == '/' || c == '?' || c == '#') {
+            // The authority is complete, so it is checked as a whole like parse does
+            int length = chars.length;
+            chars.length = i;
+            int end = scanner.scanAuthority(chars, authorityStart, i);
+            chars.length = length;
+            if (end < 0) {
+                status.fail(scanner.error, scanner.errorIndex);
+                return;
+            }
+            state = c == '/' ? PATH : c == '?' ? QUERY : FRAGMENT;
+            return;
+        }
+
+        if (c == '@') {
+            if (at >= 0) {
+                // Neither a host nor a port can hold an '@'
+                status.fail(colon >= 0 ? UrlComponent.PORT : UrlComponent.HOST, i);
+                return;
+            }
+            at = i;
+            colon = firstColon = -1;
+            return;
+        }
+        if (at >= 0 && i == at + 1) {
+            literal = c == '[';
+        }
+
+        if (c == ':') {
+            if (firstColon < 0) {
+                firstColon = i;
+            }
+            if (colon < 0 && !(at >= 0 && literal)) {
+                colon = i;
+            } else if (at >= 0 && !literal) {
+                // A second colon after the userinfo is in the port
+                status.fail(UrlComponent.PORT, i);
+            }
+            return;
+        }
+        if (c == '%') {
+            pendingHex = 2;
+            escapeStart = i;
+            return;
+        }
+        if (UrlScanner.isLineTerminator(c) && firstColon >= 0) {
+            // parse reports one after the first ':' before anything else, one before it like any bad char
+            status.fail(UrlComponent.AUTHORITY, i);
+            beforeAt = at < 0;
+            return;
+        }
+        if (c != '[' && c != ']' && !UrlScanner.is(c, UrlScanner.USERINFO)) {
+            status.fail(colon >= 0 ? UrlComponent.PORT : UrlComponent.HOST, i);
+            beforeAt = at < 0;
+            return;
+        }
+        if (at >= 0 && !literal && colon >= 0 && (!UrlScanner.is(c, UrlScanner.DIGIT) || i - colon > 5)) {
+            // Past the userinfo nothing but the port can follow the colon
+            status.fail(UrlComponent.PORT, UrlScanner.is(c, UrlScanner.DIGIT) ? colon + 1 : i);
+        }
+    }
+
+    // Follows the rest of an authority rejected before any '@', which parse reports in the userinfo when
+    // an '@' ends it
+    private void userinfo(char c) {
+        if (c == '@') {
+            status.fail(UrlComponent.USERINFO, status.getErrorIndex());
+            beforeAt = false;
+        } else if (c == '/' || c == '?' || c == '#') {
+            beforeAt = false;
+        }
+    }
+
+    private void path(char c, int i) {
+        if (pendingHex > 0) {
+            escape(c, UrlComponent.PATH);
+        } else if (c == '?') {
+            state = QUERY;
+        } else if (c == '#') {
+            state = FRAGMENT;
+        } else {
+            check(c, i, UrlScanner.PATH, UrlComponent.PATH);
+        }
+    }
+
+    private void query(char c, int i) {
+        if (pendingHex > 0) {
+            escape(c, UrlComponent.QUERY);
+        } else if (c == '#') {
+            state = FRAGMENT;
+        } else {
+            check(c, i, UrlScanner.QUERY, UrlComponent.QUERY);
+        }
+    }
+
+    private void fragment(char c, int i) {
+        if (UrlScanner.isLineTerminator(c)) {
+            // parse does not match such a URL at all
+            status.fail(UrlComponent.URL, i);
+        } else if (pendingHex > 0) {
+            escape(c, UrlComponent.FRAGMENT);
+        } else {
+            check(c, i, UrlScanner.QUERY, UrlComponent.FRAGMENT);
+        }
+    }
+
+    private void check(char c, int i, int mask, UrlComponent component) {
+        if (c == '%') {
+            pendingHex = 2;
+            escapeStart = i;
+        } else if (!UrlScanner.is(c, mask)) {
+            status.fail(component, i);
+        }
+    }
+
+    private void escape(char c, UrlComponent component) {
+        if (UrlScanner.is(c, UrlScanner.HEX)) {
+            pendingHex--;
+        } else {
+            status.fail(component, escapeStart);
+        }
+    }
+
+    // Growable view over the chars fed so far
+    private static final class Chars implements CharSequence {
+        char[] array = new char[64];
+        int length;
+
+        void ensureCapacity(int capacity) {
+            if (capacity > array.length) {
+                array = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+            }
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return array[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(array, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(array, 0, length);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.tandrade.web;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Url backed by the parsed text and the offsets found by UrlScanner. Components are only turned into
+// Strings, and the query into a map, on the first call to their getter. The raw components can also be
+// read as views over the source, see getComponent.
+public final class LazyUrl extends Url {
+    private final CharSequence source;
+    private final int schemeEnd;
+    private final int authorityStart;
+    private final int authorityEnd;
+    private final int userinfoEnd;
+    private final int passwordStart;
+    private final int hostStart;
+    private final int hostEnd;
+    private final int portStart;
+    private final int pathStart;
+    private final int pathEnd;
+    private final int queryStart;
+    private final int queryEnd;
+    private final int fragmentStart;
+
+    private String protocol;
+    private String username;
+    private String password;
+    private String hostname;
+    private String path;
+    private volatile Map<String, String> arguments;
+    private volatile QueryParameters queryParameters;
+    private String documentPart;
+
+    LazyUrl(CharSequence source, UrlScanner scanner) {
+        this(source, scanner.port, scanner.schemeEnd, scanner.authorityStart, scanner.authorityEnd, scanner.userinfoEnd,
+                scanner.passwordStart, scanner.hostStart, scanner.hostEnd, scanner.portStart, scanner.pathStart,
+                scanner.pathEnd, scanner.queryStart, scanner.queryEnd, scanner.fragmentStart);
+    }
+
+    // Offsets as UrlScanner leaves them
+    LazyUrl(CharSequence source, int port, int schemeEnd, int authorityStart, int authorityEnd, int userinfoEnd,
+            int passwordStart, int hostStart, int hostEnd, int portStart, int pathStart, int pathEnd, int queryStart,
+            int queryEnd, int fragmentStart) {
+        super(null, null, null, null, port, null, null, null);
+        this.source = source;
+        this.schemeEnd = schemeEnd;
+        this.authorityStart = authorityStart;
+        this.authorityEnd = authorityEnd;
+        this.userinfoEnd = userinfoEnd;
+        this.passwordStart = passwordStart;
+        this.hostStart = hostStart;
+        this.hostEnd = hostEnd;
+        this.portStart = portStart;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.fragmentStart = fragmentStart;
+    }
+
+    @Override
+    public String getProtocol() {
+        if (protocol == null) {
+            protocol = UrlParser.substring(source, 0, schemeEnd);
+        }
+        return protocol;
+    }
+
+    @Override
+    public String getUsername() {
+        if (username == null && userinfoEnd >= 0) {
+            username = UrlParser.substring(source, authorityStart, passwordStart >= 0 ? passwordStart - 1 : userinfoEnd);
+        }
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        if (password == null && passwordStart >= 0) {
+            password = UrlParser.substring(source, passwordStart, userinfoEnd);
+        }
+        return password;
+    }
+
+    @Override
+    public String getHostname() {
+        if (hostname == null && hostStart >= 0) {
+            hostname = UrlParser.substring(source, hostStart, hostEnd);
+        }
+        return hostname;
+    }
+
+    @Override
+    HostType classifyHost(HostParser parser) {
+        return hostStart < 0 ? null : parser.classify(source, hostStart, hostEnd);
+    }
+
+    @Override
+    String getQuery() {
+        return queryStart < 0 ? null : UrlParser.substring(source, queryStart, queryEnd);
+    }
+
+    @Override
+    int getPortDigits() {
+        return portStart < 0 ? 0 : authorityEnd - portStart;
+    }
+
+    @Override
+    public String getPath() {
+        if (path == null) {
+            path = UrlParser.substring(source, pathStart, pathEnd);
+        }
+        return path;
+    }
+
+    @Override
+    public Map<String, String> getArguments() {
+        Map<String, String> arguments = this.arguments;
+        if (arguments == null && queryStart >= 0 && queryStart < queryEnd) {
+            arguments = Collections.unmodifiableMap(getQueryParameters().toMap());
+            this.arguments = arguments;
+        }
+        return arguments;
+    }
+
+    @Override
+    public QueryParameters getQueryParameters() {
+        QueryParameters queryParameters = this.queryParameters;
+        if (queryParameters == null && queryStart >= 0 && queryStart < queryEnd) {
+            queryParameters = new QueryParameters(source, queryStart, queryEnd);
+            this.queryParameters = queryParameters;
+        }
+        return queryParameters;
+    }
+
+    @Override
+    public String getDocumentPart() {
+        if (documentPart == null && fragmentStart >= 0) {
+            documentPart = UrlParser.substring(source, fragmentStart, source.length());
+        }
+        return documentPart;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    // Raw text of component as a view over the source, null when the URL does not have it. Over a
+    // ByteSequence this is another ByteSequence on the same bytes, so nothing is decoded or copied.
+    public CharSequence getComponent(UrlComponent component) {
+        int start = getStart(component);
+        return start < 0 ? null : source.subSequence(start, getEnd(component));
+    }
+
+    // Offset of the first char of component in the source, -1 when the URL does not have it
+    public int getStart(UrlComponent component) {
+        switch (component) {
+            case URL:
+            case SCHEME:
+                return 0;
+            case AUTHORITY:
+                return authorityStart;
+            case USERINFO:
+                return userinfoEnd >= 0 ? authorityStart : -1;
+            case HOST:
+                return hostStart;
+            case PORT:
+                return portStart;
+            case PATH:
+                return pathStart;
+            case QUERY:
+                return queryStart;
+            case FRAGMENT:
+                return fragmentStart;
+            default:
+                throw new IllegalArgumentException("Unknown component: " + component);
+        }
+    }
+
+    // Offset just past the last char of component in the source, -1 when the URL does not have it
+    public int getEnd(UrlComponent component) {
+        switch (component) {
+            case URL:
+                return source.length();
+            case SCHEME:
+                return schemeEnd;
+            case AUTHORITY:
+                return authorityEnd;
+            case USERINFO:
+                return userinfoEnd;
+            case HOST:
+                return hostEnd;
+            case PORT:
+                return portStart >= 0 ? authorityEnd : -1;
+            case PATH:
+                return pathEnd;
+            case QUERY:
+                return queryEnd;
+            case FRAGMENT:
+                return fragmentStart >= 0 ? source.length() : -1;
+            default:
+                throw new IllegalArgumentException("Unknown component: " + component);
+        }
+    }
+}
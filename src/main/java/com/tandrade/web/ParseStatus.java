@@ -0,0 +1,33 @@
+package com.tandrade.web;
+
+// Outcome of UrlParser.tryParse and UrlParser.validate. Meant to be reused across calls, so rejecting a URL
+// costs no allocation.
+public final class ParseStatus {
+    private UrlComponent failedComponent;
+    private int errorIndex = -1;
+
+    public boolean isValid() {
+        return failedComponent == null;
+    }
+
+    // Component whose validation failed, the same one that decides the MalformedURLException message of
+    // UrlParser.parse. URL means the input could not be split into components at all.
+    public UrlComponent getFailedComponent() {
+        return failedComponent;
+    }
+
+    // Offset of the first offending character, -1 for a valid URL
+    public int getErrorIndex() {
+        return errorIndex;
+    }
+
+    void fail(UrlComponent component, int index) {
+        this.failedComponent = component;
+        this.errorIndex = index;
+    }
+
+    void succeed() {
+        this.failedComponent = null;
+        this.errorIndex = -1;
+    }
+}
@@ -0,0 +1,134 @@
+package com.tandrade.web;
+
+// Decodes percent-encoded UTF-8. Decoding goes through a per thread char buffer, so the only allocation is
+// the returned String, and text without escapes is returned as is. Malformed UTF-8 is replaced by one U+FFFD
+// per maximal invalid subpart, as Unicode recommends and new String(bytes, UTF_8) mostly does.
+final class PercentDecoder {
+    private static final char REPLACEMENT = '\uFFFD';
+    private static final ThreadLocal<PercentDecoder> decoders = ThreadLocal.withInitial(PercentDecoder::new);
+
+    private char[] chars = new char[256];
+
+    // With plusAsSpace, '+' decodes to ' ' as in query strings. Paths keep it, as URLDecoder does not.
+    static String decode(String text, boolean plusAsSpace) {
+        if (text == null || !needsDecoding(text, 0, text.length(), plusAsSpace)) {
+            return text;
+        }
+        return decoders.get().decodeEscapes(text, 0, text.length(), plusAsSpace);
+    }
+
+    static String decode(CharSequence text, int start, int end, boolean plusAsSpace) {
+        if (!needsDecoding(text, start, end, plusAsSpace)) {
+            return UrlParser.substring(text, start, end);
+        }
+        return decoders.get().decodeEscapes(text, start, end, plusAsSpace);
+    }
+
+    static boolean needsDecoding(CharSequence text, int start, int end, boolean plusAsSpace) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '%' || (c == '+' && plusAsSpace)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Value of the escape at i, -1 when there is no valid "%XX" there
+    static int escape(CharSequence text, int i, int end) {
+        if (i + 2 >= end || text.charAt(i) != '%') {
+            return -1;
+        }
+        int high = hex(text.charAt(i + 1));
+        int low = hex(text.charAt(i + 2));
+        return high < 0 || low < 0 ? -1 : high << 4 | low;
+    }
+
+    static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private String decodeEscapes(CharSequence text, int start, int end, boolean plusAsSpace) {
+        // Never longer than the encoded text
+        if (chars.length < end - start) {
+            chars = new char[Math.max(end - start, chars.length * 2)];
+        }
+
+        char[] chars = this.chars;
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            int b = escape(text, i, end);
+            if (b < 0) {
+                // Not an escape, a lone '%' included
+                chars[length++] = c == '+' && plusAsSpace ? ' ' : c;
+                i++;
+                continue;
+            }
+            i += 3;
+            if (b < 0x80) {
+                chars[length++] = (char) b;
+                continue;
+            }
+
+            int count;
+            int codePoint;
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                count = 1;
+                codePoint = b & 0x1F;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                count = 2;
+                codePoint = b & 0x0F;
+                // No overlong forms nor surrogates
+                min = b == 0xE0 ? 0xA0 : 0x80;
+                max = b == 0xED ? 0x9F : 0xBF;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                count = 3;
+                codePoint = b & 0x07;
+                // No overlong forms nor code points past U+10FFFF
+                min = b == 0xF0 ? 0x90 : 0x80;
+                max = b == 0xF4 ? 0x8F : 0xBF;
+            } else {
+                chars[length++] = REPLACEMENT;
+                continue;
+            }
+
+            // A truncated sequence becomes a single U+FFFD, decoding resumes at the byte that broke it
+            boolean complete = true;
+            for (int k = 0; k < count; k++) {
+                int next = escape(text, i, end);
+                if (next < min || next > max) {
+                    complete = false;
+                    break;
+                }
+                codePoint = codePoint << 6 | next & 0x3F;
+                min = 0x80;
+                max = 0xBF;
+                i += 3;
+            }
+
+            if (!complete) {
+                chars[length++] = REPLACEMENT;
+            } else if (codePoint >= 0x10000) {
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+            } else {
+                chars[length++] = (char) codePoint;
+            }
+        }
+
+        return new String(chars, 0, length);
+    }
+}
@@ -0,0 +1,71 @@
+package com.tandrade.web;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+
+// Parses like UrlParser.parseLazy, applying the SchemeProfile registered for the scheme of each URL. URLs
+// of other schemes are validated exactly as UrlParser does. Starts with the http and https profiles.
+// Registering is meant for startup, parsing is thread safe and never locks.
+public final class ProfiledUrlParser {
+    private volatile SchemeProfile[] profiles;
+
+    public ProfiledUrlParser() {
+        this(SchemeProfile.HTTP, SchemeProfile.HTTPS);
+    }
+
+    public ProfiledUrlParser(SchemeProfile... profiles) {
+        this.profiles = new SchemeProfile[0];
+        for (SchemeProfile profile : profiles) {
+            register(profile);
+        }
+    }
+
+    // Adds profile, replacing the one registered for the same scheme
+    public synchronized ProfiledUrlParser register(SchemeProfile profile) {
+        SchemeProfile[] current = profiles;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getScheme().equals(profile.getScheme())) {
+                SchemeProfile[] replaced = current.clone();
+                replaced[i] = profile;
+                profiles = replaced;
+                return this;
+            }
+        }
+        SchemeProfile[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = profile;
+        profiles = added;
+        return this;
+    }
+
+    // Profile registered for scheme, null when there is none
+    public SchemeProfile getProfile(String scheme) {
+        return SchemeProfile.find(profiles, scheme, scheme.length());
+    }
+
+    public LazyUrl parse(CharSequence url) throws MalformedURLException {
+        UrlScanner scanner = UrlParser.scanner();
+
+        if (!UrlParser.scan(scanner, url, profiles)) {
+            throw UrlParser.failure(url, scanner);
+        }
+
+        return new LazyUrl(url, scanner);
+    }
+
+    // Same as parse, reporting a malformed URL through status and returning null instead of throwing
+    public LazyUrl tryParse(CharSequence url, ParseStatus status) {
+        UrlScanner scanner = UrlParser.scanner();
+
+        if (!UrlParser.scan(scanner, url, profiles)) {
+            status.fail(scanner.error, scanner.errorIndex);
+            return null;
+        }
+
+        status.succeed();
+        return new LazyUrl(url, scanner);
+    }
+
+    public boolean isValid(CharSequence url) {
+        return UrlParser.scan(UrlParser.scanner(), url, profiles);
+    }
+}
@@ -0,0 +1,152 @@
+package com.tandrade.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Query parameters kept as offsets into the URL, three ints per parameter: name start, name end and pair
+// end. Parameters are split like Url.getArguments splits them, but repeated names are all kept, in their
+// original order, and names and values only become Strings when asked for.
+public final class QueryParameters {
+    private final CharSequence source;
+    private final int[] offsets;
+
+    QueryParameters(CharSequence source, int start, int end) {
+        // Trailing empty parameters are dropped, as String.split does
+        while (end > start && source.charAt(end - 1) == '&') {
+            end--;
+        }
+
+        int count = start < end ? 1 : 0;
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == '&') {
+                count++;
+            }
+        }
+
+        int[] offsets = new int[count * 3];
+        int pairStart = start;
+        for (int pair = 0; pair < count; pair++) {
+            int nameEnd = -1;
+            int pairEnd = pairStart;
+            for (; pairEnd < end; pairEnd++) {
+                char c = source.charAt(pairEnd);
+                if (c == '&') {
+                    break;
+                }
+                if (c == '=' && nameEnd < 0) {
+                    nameEnd = pairEnd;
+                }
+            }
+
+            offsets[pair * 3] = pairStart;
+            offsets[pair * 3 + 1] = nameEnd < 0 ? pairEnd : nameEnd;
+            offsets[pair * 3 + 2] = pairEnd;
+            pairStart = pairEnd + 1;
+        }
+
+        this.source = source;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return offsets.length / 3;
+    }
+
+    public String getName(int index) {
+        return UrlParser.substring(source, offsets[index * 3], offsets[index * 3 + 1]);
+    }
+
+    // Value of the parameter at index, null when it has no '='
+    public String getValue(int index) {
+        int nameEnd = offsets[index * 3 + 1];
+        int pairEnd = offsets[index * 3 + 2];
+        return nameEnd < pairEnd ? UrlParser.substring(source, nameEnd + 1, pairEnd) : null;
+    }
+
+    // Name of the parameter at index with escapes and '+' decoded
+    public String getDecodedName(int index) {
+        return PercentDecoder.decode(source, offsets[index * 3], offsets[index * 3 + 1], true);
+    }
+
+    public String getDecodedValue(int index) {
+        int nameEnd = offsets[index * 3 + 1];
+        int pairEnd = offsets[index * 3 + 2];
+        return nameEnd < pairEnd ? PercentDecoder.decode(source, nameEnd + 1, pairEnd, true) : null;
+    }
+
+    // Index of the first parameter called name, -1 when there is none
+    public int indexOf(CharSequence name) {
+        return indexOf(name, 0);
+    }
+
+    public int indexOf(CharSequence name, int from) {
+        for (int i = from; i < size(); i++) {
+            if (nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(CharSequence name) {
+        return indexOf(name) >= 0;
+    }
+
+    // Value of the first parameter called name, null when there is none or it has no value
+    public String get(CharSequence name) {
+        int index = indexOf(name);
+        return index < 0 ? null : getValue(index);
+    }
+
+    // Values of every parameter called name, in query order
+    public List<String> getAll(CharSequence name) {
+        List<String> values = new ArrayList<>();
+        for (int i = indexOf(name); i >= 0; i = indexOf(name, i + 1)) {
+            values.add(getValue(i));
+        }
+        return values;
+    }
+
+    // Visits every parameter in query order
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < size(); i++) {
+            action.accept(getName(i), getValue(i));
+        }
+    }
+
+    CharSequence getSource() {
+        return source;
+    }
+
+    // Offsets of the whole query in the source, without the trailing '&'s
+    int getStart() {
+        return offsets.length == 0 ? 0 : offsets[0];
+    }
+
+    int getEnd() {
+        return offsets.length == 0 ? 0 : offsets[offsets.length - 1];
+    }
+
+    // The map returned by Url.getArguments, where the last of repeated names wins
+    HashMap<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    private boolean nameEquals(int index, CharSequence name) {
+        int start = offsets[index * 3];
+        int length = offsets[index * 3 + 1] - start;
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
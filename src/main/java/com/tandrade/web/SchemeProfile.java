@@ -0,0 +1,88 @@
+package com.tandrade.web;
+
+import java.util.Locale;
+
+// Rules a ProfiledUrlParser applies to the URLs of one scheme, on top of the generic RFC 3986 ones: the
+// default port, whether a non empty host is required and whether a userinfo may come before it. A profile
+// is only this fixed set of flags, not a validator of its own, and a URL it rejects fails with the same
+// component as the generic parser would report, unless only the profile rules are broken. A scheme without
+// userinfo gets a valid authority checked in a single pass, without tracking whether the chars before an
+// '@' are a userinfo or a host and port, while a scheme allowing userinfo goes through the generic check.
+// Registered schemes follow RFC 3986 and may hold digits, like s3, which UrlParser.scheme does not accept.
+public final class SchemeProfile {
+    public static final SchemeProfile HTTP = new SchemeProfile("http", 80, true, false);
+    public static final SchemeProfile HTTPS = new SchemeProfile("https", 443, true, false);
+
+    private final String scheme;
+    private final int defaultPort;
+    private final boolean hostRequired;
+    private final boolean userinfoAllowed;
+
+    // scheme is matched ignoring case, defaultPort is 0 when the scheme has none
+    public SchemeProfile(String scheme, int defaultPort, boolean hostRequired, boolean userinfoAllowed) {
+        if (!isScheme(scheme)) {
+            throw new IllegalArgumentException("Invalid protocol specified: " + scheme);
+        }
+        if (defaultPort < 0 || defaultPort > 65535) {
+            throw new IllegalArgumentException("Invalid port specified: " + defaultPort);
+        }
+        this.scheme = scheme.toLowerCase(Locale.ROOT);
+        this.defaultPort = defaultPort;
+        this.hostRequired = hostRequired;
+        this.userinfoAllowed = userinfoAllowed;
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    public int getDefaultPort() {
+        return defaultPort;
+    }
+
+    public boolean isHostRequired() {
+        return hostRequired;
+    }
+
+    public boolean isUserinfoAllowed() {
+        return userinfoAllowed;
+    }
+
+    // Profile of profiles whose scheme is url[0, schemeEnd), null when there is none
+    static SchemeProfile find(SchemeProfile[] profiles, CharSequence url, int schemeEnd) {
+        for (SchemeProfile profile : profiles) {
+            String scheme = profile.scheme;
+            if (scheme.length() != schemeEnd) {
+                continue;
+            }
+            int i = 0;
+            while (i < schemeEnd && UrlNormalizer.toLowerCase(url.charAt(i)) == scheme.charAt(i)) {
+                i++;
+            }
+            if (i == schemeEnd) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    // ALPHA *( ALPHA / DIGIT / "+" / "-" / "." )
+    private static boolean isScheme(String scheme) {
+        if (scheme == null || scheme.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < scheme.length(); i++) {
+            char c = scheme.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!letter && (i == 0 || !((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return scheme;
+    }
+}
@@ -0,0 +1,112 @@
+package com.tandrade.web;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// SIMD within a register: tests 8 bytes of a URL at once for the chars the scanner has to look at, so runs
+// of plain path, query or fragment chars are skipped a long word at a time. Lanes are masked to 7 bits
+// before any addition, so no carry crosses from one byte to the next and every lane result is exact.
+final class Swar {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long LOW = ~HIGH;
+
+    private Swar() {
+    }
+
+    // First index in [from, to) that may be a delimiter or a char the path does not accept. Valid escapes
+    // are stepped over. Stops where fewer than 8 bytes are left, the caller checks those one by one. The
+    // bytes are read from array, little endian and without any wrapper, or from buffer when array is null.
+    static int skipPath(byte[] array, ByteBuffer buffer, int from, int to) {
+        boolean littleEndian = array != null || buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        while (i + 8 <= to) {
+            long word = array != null ? getLong(array, i) : buffer.getLong(i);
+            long special = special(word) | eq(word & LOW, '?');
+            if (special == 0) {
+                i += 8;
+                continue;
+            }
+            int at = i + first(special, littleEndian);
+            if (!isEscape(array, buffer, at, to)) {
+                return at;
+            }
+            i = at + 3;
+        }
+        return i;
+    }
+
+    // Same as skipPath for the query and the fragment, where '?' is a plain char
+    static int skipQuery(byte[] array, ByteBuffer buffer, int from, int to) {
+        boolean littleEndian = array != null || buffer.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = from;
+        while (i + 8 <= to) {
+            long special = special(array != null ? getLong(array, i) : buffer.getLong(i));
+            if (special == 0) {
+                i += 8;
+                continue;
+            }
+            int at = i + first(special, littleEndian);
+            if (!isEscape(array, buffer, at, to)) {
+                return at;
+            }
+            i = at + 3;
+        }
+        return i;
+    }
+
+    // High bit set in each byte that is not a valid query char, or is '#' or '%': non ASCII, controls
+    // and space, '"', '#', '%', '<', '>', '[' to '^', '`', '{' to '}' and DEL. '$' and '~' are flagged
+    // too, which takes fewer operations and only sends these rare chars down the char at a time path.
+    private static long special(long word) {
+        long low = word & LOW;
+        return (word & HIGH)
+                | ~ge(low, 0x21) & HIGH
+                | ge(low, '"') & ~ge(low, '&')
+                // '<' and '>' are the only bytes equal to '>' once bit 1 is set, '=' becomes '?'
+                | eq(low | 0x02 * ONES, '>')
+                | ge(low, '[') & ~ge(low, '_')
+                | eq(low, '`')
+                | ge(low, '{');
+    }
+
+    // High bit set in each 7 bit lane >= n, for n in [1, 128]
+    private static long ge(long low, int n) {
+        return (low + (0x80 - n) * ONES) & HIGH;
+    }
+
+    // High bit set in each 7 bit lane equal to c
+    private static long eq(long low, char c) {
+        return ~((low ^ c * ONES) + 0x7F * ONES) & HIGH;
+    }
+
+    // '%' followed by two hex digits, as UrlScanner.valid checks it
+    private static boolean isEscape(byte[] array, ByteBuffer buffer, int at, int to) {
+        return at + 2 < to && get(array, buffer, at) == '%' && isHex(get(array, buffer, at + 1)) && isHex(get(array, buffer, at + 2));
+    }
+
+    private static byte get(byte[] array, ByteBuffer buffer, int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+
+    // Little endian, as ByteBuffer.getLong reads it in that order
+    private static long getLong(byte[] array, int i) {
+        return array[i] & 0xFFL
+                | (array[i + 1] & 0xFFL) << 8
+                | (array[i + 2] & 0xFFL) << 16
+                | (array[i + 3] & 0xFFL) << 24
+                | (array[i + 4] & 0xFFL) << 32
+                | (array[i + 5] & 0xFFL) << 40
+                | (array[i + 6] & 0xFFL) << 48
+                | (array[i + 7] & 0xFFL) << 56;
+    }
+
+    private static boolean isHex(byte b) {
+        int lower = b | 0x20;
+        return (b >= '0' && b <= '9') || (lower >= 'a' && lower <= 'f');
+    }
+
+    private static int first(long special, boolean littleEndian) {
+        return (littleEndian ? Long.numberOfTrailingZeros(special) : Long.numberOfLeadingZeros(special)) >>> 3;
+    }
+}
@@ -1,26 +1,55 @@
 package com.tandrade.web;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
+// Immutable, so parsed URLs can be shared and cached
 public class Url {
-    private String protocol;
-    private String username;
-    private String password;
-    private String hostname;
-    private int port;
-    private String path;
-    private Map<String, String> arguments;
-    private String documentPart;
+    private static final ThreadLocal<UrlBuilder> builders = ThreadLocal.withInitial(UrlBuilder::new);
+
+    private final String protocol;
+    private final String username;
+    private final String password;
+    private final String hostname;
+    private final int port;
+    // Digits the port was written with, 0 without port and -1 when not known
+    private final int portDigits;
+    private final String path;
+    private final Map<String, String> arguments;
+    private final String documentPart;
+    private final QueryParameters queryParameters;
+    // As written, trailing '&'s included and "" for a bare '?'. null without query or when not known.
+    private final String query;
+
+    // Decoded on first use. Racing threads decode the same values, as String.hashCode does.
+    private String decodedUsername;
+    private String decodedPassword;
+    private String decodedPath;
+    private Map<String, String> decodedArguments;
+    private String decodedDocumentPart;
+    private DecodedHost decodedHost;
 
     protected Url(String protocol, String username, String password, String hostname, int port, String path, Map<String, String> arguments, String documentPart) {
+        this(protocol, username, password, hostname, port, path, arguments, null, documentPart);
+    }
+
+    protected Url(String protocol, String username, String password, String hostname, int port, String path, Map<String, String> arguments, QueryParameters queryParameters, String documentPart) {
+        this(protocol, username, password, hostname, port, -1, path, arguments, queryParameters, null, documentPart);
+    }
+
+    Url(String protocol, String username, String password, String hostname, int port, int portDigits, String path, Map<String, String> arguments, QueryParameters queryParameters, String query, String documentPart) {
         this.protocol = protocol;
         this.username = username;
         this.password = password;
         this.hostname = hostname;
         this.port = port;
+        this.portDigits = portDigits;
         this.path = path;
-        this.arguments = arguments;
+        this.arguments = arguments == null ? null : Collections.unmodifiableMap(arguments);
         this.documentPart = documentPart;
+        this.queryParameters = queryParameters;
+        this.query = query;
     }
 
     public String getProtocol() {
@@ -43,6 +72,12 @@ public class Url {
         return port;
     }
 
+    // Number of digits of the port as written, leading zeros included. 0 when the URL gave no port, and -1
+    // when the Url was built from its components and does not tell.
+    int getPortDigits() {
+        return portDigits;
+    }
+
     public String getPath() {
         return path;
     }
@@ -51,7 +86,130 @@ public class Url {
         return arguments;
     }
 
+    String getQuery() {
+        return query;
+    }
+
     public String getDocumentPart() {
         return documentPart;
     }
+
+    // The getDecoded methods return their component with percent escapes decoded as UTF-8. A component
+    // without escapes is returned as is, so decoding only allocates when there was something to decode.
+    public String getDecodedUsername() {
+        if (decodedUsername == null) {
+            decodedUsername = PercentDecoder.decode(getUsername(), false);
+        }
+        return decodedUsername;
+    }
+
+    public String getDecodedPassword() {
+        if (decodedPassword == null) {
+            decodedPassword = PercentDecoder.decode(getPassword(), false);
+        }
+        return decodedPassword;
+    }
+
+    // '+' is kept, it only means a space in query strings
+    public String getDecodedPath() {
+        if (decodedPath == null) {
+            decodedPath = PercentDecoder.decode(getPath(), false);
+        }
+        return decodedPath;
+    }
+
+    // getArguments with names and values decoded like HTML forms, '+' included
+    public Map<String, String> getDecodedArguments() {
+        QueryParameters queryParameters = getQueryParameters();
+        if (decodedArguments == null && queryParameters != null) {
+            HashMap<String, String> arguments = new HashMap<>();
+            for (int i = 0; i < queryParameters.size(); i++) {
+                arguments.put(queryParameters.getDecodedName(i), queryParameters.getDecodedValue(i));
+            }
+            decodedArguments = Collections.unmodifiableMap(arguments);
+        }
+        return decodedArguments;
+    }
+
+    public String getDecodedDocumentPart() {
+        if (decodedDocumentPart == null) {
+            decodedDocumentPart = PercentDecoder.decode(getDocumentPart(), false);
+        }
+        return decodedDocumentPart;
+    }
+
+    // Null when the URL has no authority
+    public HostType getHostType() {
+        return getDecodedHost().type;
+    }
+
+    // Address of an IPv4 host, in network byte order
+    public int getIpv4Address() {
+        return decodeHost(HostType.IPV4).ipv4;
+    }
+
+    // First 64 bits of the address of an IPv6 host
+    public long getIpv6AddressHigh() {
+        return decodeHost(HostType.IPV6).ipv6High;
+    }
+
+    // Last 64 bits of the address of an IPv6 host
+    public long getIpv6AddressLow() {
+        return decodeHost(HostType.IPV6).ipv6Low;
+    }
+
+    HostType classifyHost(HostParser parser) {
+        return hostname == null ? null : parser.classify(hostname, 0, hostname.length());
+    }
+
+    private DecodedHost decodeHost(HostType type) {
+        DecodedHost host = getDecodedHost();
+        if (host.type != type) {
+            throw new IllegalStateException("Host is not an " + type + " address: " + getHostname());
+        }
+        return host;
+    }
+
+    // The host is classified and its address decoded once, then read from the final fields of DecodedHost
+    private DecodedHost getDecodedHost() {
+        DecodedHost host = decodedHost;
+        if (host == null) {
+            HostParser parser = new HostParser();
+            host = new DecodedHost(classifyHost(parser), parser);
+            decodedHost = host;
+        }
+        return host;
+    }
+
+    // Query parameters in their original order, repeated names included. Null when there is no query, as
+    // for getArguments.
+    public QueryParameters getQueryParameters() {
+        return queryParameters;
+    }
+
+    // The URL written back from its components, see UrlBuilder
+    @Override
+    public String toString() {
+        UrlBuilder builder = builders.get();
+        try {
+            return builder.reset(this).toString();
+        } finally {
+            // Does not keep the components of this Url alive
+            builder.reset();
+        }
+    }
+
+    private static final class DecodedHost {
+        final HostType type;
+        final int ipv4;
+        final long ipv6High;
+        final long ipv6Low;
+
+        DecodedHost(HostType type, HostParser parser) {
+            this.type = type;
+            this.ipv4 = parser.ipv4;
+            this.ipv6High = parser.ipv6High;
+            this.ipv6Low = parser.ipv6Low;
+        }
+    }
 }
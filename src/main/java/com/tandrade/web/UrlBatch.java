@@ -0,0 +1,388 @@
+package com.tandrade.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Columnar store for a large batch of parsed URLs, built by UrlBatchParser.parseBatch. Accepted URLs are
+// pure ASCII, so they are copied one byte per char into a single arena, and each row keeps the scanner
+// offsets of its components in int columns, relative to where the row starts in the arena. Schemes and
+// hosts are dictionary encoded: a row holds the id of its scheme and host, and each distinct value is
+// stored once. Column scans such as countByHost run over int arrays, and get builds a LazyUrl view over
+// the arena only when asked. Rows keep the input order, rejected rows hold nothing but their failure.
+public final class UrlBatch {
+    private static final UrlComponent[] COMPONENTS = UrlComponent.values();
+
+    private final int size;
+    private byte[] arena;
+    // Index of each row in the arena, -1 for rejected rows
+    private final int[] rowStarts;
+    private final int[] rowLengths;
+    // UrlComponent ordinal + 1 of the failure, 0 for accepted rows
+    private final byte[] failures;
+
+    private final int[] ports;
+    private final int[] schemeEnds;
+    private final int[] authorityStarts;
+    private final int[] authorityEnds;
+    private final int[] userinfoEnds;
+    private final int[] passwordStarts;
+    private final int[] hostStarts;
+    private final int[] hostEnds;
+    private final int[] portStarts;
+    private final int[] pathStarts;
+    private final int[] pathEnds;
+    private final int[] queryStarts;
+    private final int[] queryEnds;
+    private final int[] fragmentStarts;
+
+    // Dictionary ids, -1 for rejected rows and rows without host
+    private final int[] schemeIds;
+    private final int[] hostIds;
+    private final Dictionary schemes = new Dictionary();
+    private final Dictionary hosts = new Dictionary();
+
+    private int accepted;
+
+    private UrlBatch(int size) {
+        this.size = size;
+        rowStarts = new int[size];
+        rowLengths = new int[size];
+        failures = new byte[size];
+        ports = new int[size];
+        schemeEnds = new int[size];
+        authorityStarts = new int[size];
+        authorityEnds = new int[size];
+        userinfoEnds = new int[size];
+        passwordStarts = new int[size];
+        hostStarts = new int[size];
+        hostEnds = new int[size];
+        portStarts = new int[size];
+        pathStarts = new int[size];
+        pathEnds = new int[size];
+        queryStarts = new int[size];
+        queryEnds = new int[size];
+        fragmentStarts = new int[size];
+        schemeIds = new int[size];
+        hostIds = new int[size];
+    }
+
+    // Scans the rows in parallel slices, lays the accepted ones out in the arena, then encodes schemes and
+    // hosts. Only the arena, the columns and one String per distinct scheme and host are allocated.
+    static UrlBatch parse(CharSequence[] urls, ForkJoinPool pool, int slice) {
+        UrlBatch batch = new UrlBatch(urls.length);
+        pool.invoke(new Slice(urls, batch, null, 0, urls.length, slice));
+
+        long length = 0;
+        for (int row = 0; row < batch.size; row++) {
+            if (batch.failures[row] == 0) {
+                batch.rowStarts[row] = (int) length;
+                length += batch.rowLengths[row];
+                batch.accepted++;
+                if (length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Accepted URLs hold more than " + Integer.MAX_VALUE + " chars");
+                }
+            } else {
+                batch.rowStarts[row] = -1;
+            }
+        }
+
+        batch.arena = new byte[(int) length];
+        pool.invoke(new Slice(urls, batch, batch.arena, 0, urls.length, slice));
+        batch.encode();
+        return batch;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Number of rows that parsed
+    public int getAcceptedCount() {
+        return accepted;
+    }
+
+    public boolean isValid(int row) {
+        return failures[row] == 0;
+    }
+
+    // Component that made the URL of row fail, null when it parsed
+    public UrlComponent getFailure(int row) {
+        int failure = failures[row];
+        return failure == 0 ? null : COMPONENTS[failure - 1];
+    }
+
+    // A new view over the arena for row, null when it was rejected
+    public LazyUrl get(int row) {
+        if (failures[row] != 0) {
+            return null;
+        }
+        return new LazyUrl(new ByteSequence(arena, rowStarts[row], rowLengths[row]), ports[row], schemeEnds[row],
+                authorityStarts[row], authorityEnds[row], userinfoEnds[row], passwordStarts[row], hostStarts[row],
+                hostEnds[row], portStarts[row], pathStarts[row], pathEnds[row], queryStarts[row], queryEnds[row],
+                fragmentStarts[row]);
+    }
+
+    // Explicit or default port of row, 0 for rejected rows
+    public int getPort(int row) {
+        return ports[row];
+    }
+
+    // Scheme id of row, -1 when it was rejected. Schemes are kept as written, so "http" and "HTTP" differ.
+    public int getSchemeId(int row) {
+        return schemeIds[row];
+    }
+
+    // Host id of row, -1 when it was rejected or has no host
+    public int getHostId(int row) {
+        return hostIds[row];
+    }
+
+    public int getSchemeCount() {
+        return schemes.size;
+    }
+
+    public int getHostCount() {
+        return hosts.size;
+    }
+
+    public String getScheme(int schemeId) {
+        return schemes.get(schemeId);
+    }
+
+    public String getHost(int hostId) {
+        return hosts.get(hostId);
+    }
+
+    // Host id of host, -1 when no row has it
+    public int findHost(String host) {
+        return hosts.find(host);
+    }
+
+    // Number of rows per scheme id
+    public int[] countByScheme() {
+        return count(schemeIds, schemes.size);
+    }
+
+    // Number of rows per host id
+    public int[] countByHost() {
+        return count(hostIds, hosts.size);
+    }
+
+    // Number of rows with host, compared as written
+    public int countHost(String host) {
+        int hostId = hosts.find(host);
+        if (hostId < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (hostIds[row] == hostId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Chars held for all accepted URLs
+    public int getArenaLength() {
+        return arena.length;
+    }
+
+    private static int[] count(int[] ids, int distinct) {
+        int[] counts = new int[distinct];
+        for (int id : ids) {
+            if (id >= 0) {
+                counts[id]++;
+            }
+        }
+        return counts;
+    }
+
+    private void encode() {
+        for (int row = 0; row < size; row++) {
+            if (failures[row] != 0) {
+                schemeIds[row] = hostIds[row] = -1;
+                continue;
+            }
+            int start = rowStarts[row];
+            schemeIds[row] = schemes.add(arena, start, schemeEnds[row]);
+            hostIds[row] = hostStarts[row] < 0 ? -1 : hosts.add(arena, start + hostStarts[row], hostEnds[row] - hostStarts[row]);
+        }
+    }
+
+    // Scans rows into the columns, or copies accepted rows into the arena once their starts are known
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence[] urls;
+        private final UrlBatch batch;
+        private byte[] arena;
+        private final int start;
+        private final int end;
+        private final int slice;
+
+        Slice(CharSequence[] urls, UrlBatch batch, byte[] arena, int start, int end, int slice) {
+            this.urls = urls;
+            this.batch = batch;
+            this.arena = arena;
+            this.start = start;
+            this.end = end;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > slice) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Slice(urls, batch, arena, start, middle, slice),
+                        new Slice(urls, batch, arena, middle, end, slice));
+            } else if (arena == null) {
+                scan();
+            } else {
+                copy();
+            }
+        }
+
+        private void scan() {
+            UrlScanner scanner = UrlParser.scanner();
+            for (int row = start; row < end; row++) {
+                CharSequence url = urls[row];
+                if (!UrlParser.scan(scanner, url)) {
+                    batch.failures[row] = (byte) (scanner.error.ordinal() + 1);
+                    continue;
+                }
+                batch.rowLengths[row] = url.length();
+                batch.ports[row] = scanner.port;
+                batch.schemeEnds[row] = scanner.schemeEnd;
+                batch.authorityStarts[row] = scanner.authorityStart;
+                batch.authorityEnds[row] = scanner.authorityEnd;
+                batch.userinfoEnds[row] = scanner.userinfoEnd;
+                batch.passwordStarts[row] = scanner.passwordStart;
+                batch.hostStarts[row] = scanner.hostStart;
+                batch.hostEnds[row] = scanner.hostEnd;
+                batch.portStarts[row] = scanner.portStart;
+                batch.pathStarts[row] = scanner.pathStart;
+                batch.pathEnds[row] = scanner.pathEnd;
+                batch.queryStarts[row] = scanner.queryStart;
+                batch.queryEnds[row] = scanner.queryEnd;
+                batch.fragmentStarts[row] = scanner.fragmentStart;
+            }
+        }
+
+        private void copy() {
+            for (int row = start; row < end; row++) {
+                int offset = batch.rowStarts[row];
+                if (offset < 0) {
+                    continue;
+                }
+                CharSequence url = urls[row];
+                for (int i = 0, n = url.length(); i < n; i++) {
+                    arena[offset + i] = (byte) url.charAt(i);
+                }
+            }
+        }
+    }
+
+    // Open addressing table of distinct values, compared byte by byte against the arena so looking up a
+    // row allocates nothing. Each entry points at its first occurrence.
+    static final class Dictionary {
+        private byte[] arena;
+        private int[] table = new int[16];
+        private int[] starts = new int[8];
+        private int[] lengths = new int[8];
+        private String[] values = new String[8];
+        int size;
+
+        Dictionary() {
+            Arrays.fill(table, -1);
+        }
+
+        int add(byte[] arena, int start, int length) {
+            this.arena = arena;
+            int mask = table.length - 1;
+            for (int slot = hash(arena, start, length) & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot];
+                if (id < 0) {
+                    return insert(slot, start, length);
+                }
+                if (equals(id, arena, start, length)) {
+                    return id;
+                }
+            }
+        }
+
+        int find(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+            int mask = table.length - 1;
+            for (int slot = hash(bytes, 0, bytes.length) & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot];
+                if (id < 0) {
+                    return -1;
+                }
+                if (values[id].equals(value)) {
+                    return id;
+                }
+            }
+        }
+
+        String get(int id) {
+            if (id < 0 || id >= size) {
+                throw new IndexOutOfBoundsException("id " + id + ", size " + size);
+            }
+            return values[id];
+        }
+
+        private int insert(int slot, int start, int length) {
+            int id = size++;
+            if (id == starts.length) {
+                starts = Arrays.copyOf(starts, id * 2);
+                lengths = Arrays.copyOf(lengths, id * 2);
+                values = Arrays.copyOf(values, id * 2);
+            }
+            starts[id] = start;
+            lengths[id] = length;
+            values[id] = new String(arena, start, length, StandardCharsets.ISO_8859_1);
+            table[slot] = id;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hash(arena, starts[id], lengths[id]) & mask;
+                while (table[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id;
+            }
+        }
+
+        private boolean equals(int id, byte[] arena, int start, int length) {
+            if (lengths[id] != length) {
+                return false;
+            }
+            int other = starts[id];
+            for (int i = 0; i < length; i++) {
+                if (arena[start + i] != arena[other + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] bytes, int start, int length) {
+            int hash = 0x811c9dc5;
+            for (int i = start, end = start + length; i < end; i++) {
+                hash = (hash ^ bytes[i]) * 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
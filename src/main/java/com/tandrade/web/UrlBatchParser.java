@@ -0,0 +1,122 @@
+package com.tandrade.web;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Parses batches of URLs across a ForkJoinPool. Each worker runs its own reused scanner over contiguous
+// slices of the batch and writes straight into the result array, so results keep the input order and
+// parsing allocates nothing but the returned LazyUrls.
+public final class UrlBatchParser {
+    private static final int MIN_SLICE = 256;
+
+    private final ForkJoinPool pool;
+
+    public UrlBatchParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public UrlBatchParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Parsed URLs in input order, null where the URL was rejected
+    public LazyUrl[] parse(CharSequence[] urls) {
+        return parse(urls, null);
+    }
+
+    // Same as parse(urls), also storing in failures, when given, the component that made each rejected URL
+    // fail. failures must be at least as long as urls.
+    public LazyUrl[] parse(CharSequence[] urls, UrlComponent[] failures) {
+        if (failures != null && failures.length < urls.length) {
+            throw new IllegalArgumentException("failures holds " + failures.length + " entries for " + urls.length + " urls");
+        }
+
+        LazyUrl[] results = new LazyUrl[urls.length];
+        pool.invoke(new Slice(urls, results, failures, 0, urls.length, slice(urls.length)));
+        return results;
+    }
+
+    // Parses urls into one columnar UrlBatch instead of a LazyUrl per row, see UrlBatch
+    public UrlBatch parseBatch(CharSequence[] urls) {
+        return UrlBatch.parse(urls, pool, slice(urls.length));
+    }
+
+    public List<LazyUrl> parse(List<? extends CharSequence> urls) {
+        return Arrays.asList(parse(urls.toArray(new CharSequence[0])));
+    }
+
+    public UrlBatch parseBatch(List<? extends CharSequence> urls) {
+        return parseBatch(urls.toArray(new CharSequence[0]));
+    }
+
+    // Parses every non empty line of file, see UrlFileParser. The returned URLs read from the mapped file.
+    public List<LazyUrl> parse(Path file) throws IOException {
+        return parse(lines(file));
+    }
+
+    // Parses every non empty line of file into a UrlBatch, which copies the accepted lines out of the file
+    public UrlBatch parseBatch(Path file) throws IOException {
+        return parseBatch(lines(file));
+    }
+
+    private int slice(int length) {
+        return Math.max(MIN_SLICE, length / (pool.getParallelism() * 8));
+    }
+
+    private static List<CharSequence> lines(Path file) throws IOException {
+        List<CharSequence> lines = new ArrayList<>();
+
+        try (UrlFileParser.MappedLines mappedLines = new UrlFileParser.MappedLines(file, UrlFileParser.DEFAULT_WINDOW)) {
+            for (ByteSequence line = mappedLines.next(); line != null; line = mappedLines.next()) {
+                lines.add(line);
+            }
+        }
+
+        return lines;
+    }
+
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence[] urls;
+        private final LazyUrl[] results;
+        private final UrlComponent[] failures;
+        private final int start;
+        private final int end;
+        private final int slice;
+
+        Slice(CharSequence[] urls, LazyUrl[] results, UrlComponent[] failures, int start, int end, int slice) {
+            this.urls = urls;
+            this.results = results;
+            this.failures = failures;
+            this.start = start;
+            this.end = end;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > slice) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Slice(urls, results, failures, start, middle, slice),
+                        new Slice(urls, results, failures, middle, end, slice));
+                return;
+            }
+
+            UrlScanner scanner = UrlParser.scanner();
+            for (int i = start; i < end; i++) {
+                CharSequence url = urls[i];
+                if (UrlParser.scan(scanner, url)) {
+                    results[i] = new LazyUrl(url, scanner);
+                } else if (failures != null) {
+                    failures[i] = scanner.error;
+                }
+            }
+        }
+    }
+}
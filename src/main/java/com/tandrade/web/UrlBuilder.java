@@ -0,0 +1,447 @@
+package com.tandrade.web;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+// Mutable builder of URLs, meant to be reset and reused. Components are kept as ranges of the CharSequences
+// they come from, the source of a LazyUrl or the values given to the setters, and are only copied when the
+// URL is written, so writing creates no intermediate String. A LazyUrl loaded with reset(url) and left
+// unchanged is written by copying its source as is. Values are written as given and must already be
+// percent-encoded, build validates the result like parse does. The CharSequences given must not change
+// until the builder is reset. Not thread safe.
+public final class UrlBuilder {
+    private final Range scheme = new Range();
+    private final Range username = new Range();
+    private final Range password = new Range();
+    private final Range host = new Range();
+    private final Range portText = new Range();
+    private int port = -1;
+    // Digits port is written with, leading zeros included, 0 for as many as it needs
+    private int portDigits;
+    private final Range path = new Range();
+    private final Range query = new Range();
+    private final Range fragment = new Range();
+
+    // Query parameters, only split from the query once one is added or removed
+    private boolean splitQuery;
+    private int parameterCount;
+    private CharSequence[] names = new CharSequence[8];
+    private CharSequence[] values = new CharSequence[8];
+    // Name start, name end, value start and value end of each parameter
+    private int[] offsets = new int[32];
+
+    // Source of the loaded LazyUrl, until a component is changed
+    private CharSequence source;
+    private final ByteBufferAppendable bytes = new ByteBufferAppendable();
+
+    public UrlBuilder() {
+        reset();
+    }
+
+    // Clears every component
+    public UrlBuilder reset() {
+        scheme.set(null);
+        username.set(null);
+        password.set(null);
+        host.set(null);
+        portText.set(null);
+        port = -1;
+        portDigits = 0;
+        path.set("");
+        query.set(null);
+        fragment.set(null);
+        clearParameters();
+        source = null;
+        return this;
+    }
+
+    // Loads the components of url. A port equal to the default one of a Url built from its components, rather
+    // than parsed, is left out, such a Url does not tell whether it was given.
+    public UrlBuilder reset(Url url) {
+        reset();
+
+        if (url instanceof LazyUrl) {
+            LazyUrl lazyUrl = (LazyUrl) url;
+            CharSequence source = lazyUrl.getSource();
+            scheme.set(source, 0, lazyUrl.getEnd(UrlComponent.SCHEME));
+            set(host, lazyUrl, UrlComponent.HOST);
+            set(portText, lazyUrl, UrlComponent.PORT);
+            set(path, lazyUrl, UrlComponent.PATH);
+            set(query, lazyUrl, UrlComponent.QUERY);
+            set(fragment, lazyUrl, UrlComponent.FRAGMENT);
+
+            int userinfoStart = lazyUrl.getStart(UrlComponent.USERINFO);
+            if (userinfoStart >= 0) {
+                int userinfoEnd = lazyUrl.getEnd(UrlComponent.USERINFO);
+                int colon = userinfoStart;
+                while (colon < userinfoEnd && source.charAt(colon) != ':') {
+                    colon++;
+                }
+                username.set(source, userinfoStart, colon);
+                if (colon < userinfoEnd) {
+                    password.set(source, colon + 1, userinfoEnd);
+                }
+            }
+
+            this.source = source;
+            return this;
+        }
+
+        scheme.set(url.getProtocol());
+        username.set(url.getUsername());
+        password.set(url.getPassword());
+        host.set(url.getHostname());
+        int digits = url.getPortDigits();
+        if (digits > 0) {
+            port = url.getPort();
+            portDigits = digits;
+        } else if (digits < 0 && url.getPort() != 0
+                && url.getPort() != UrlScanner.defaultPort(url.getProtocol(), 0, url.getProtocol().length())) {
+            port = url.getPort();
+        }
+        path.set(url.getPath());
+        fragment.set(url.getDocumentPart());
+
+        QueryParameters queryParameters = url.getQueryParameters();
+        if (url.getQuery() != null) {
+            query.set(url.getQuery());
+        } else if (queryParameters != null) {
+            query.set(queryParameters.getSource(), queryParameters.getStart(), queryParameters.getEnd());
+        } else if (url.getArguments() != null) {
+            // Urls built by subclasses may only have the arguments
+            splitQuery = true;
+            for (Map.Entry<String, String> argument : url.getArguments().entrySet()) {
+                addQueryParameter(argument.getKey(), argument.getValue());
+            }
+        }
+        return this;
+    }
+
+    public UrlBuilder setScheme(CharSequence scheme) {
+        this.scheme.set(scheme);
+        source = null;
+        return this;
+    }
+
+    // A null username removes the userinfo, a null password only the password
+    public UrlBuilder setUserinfo(CharSequence username, CharSequence password) {
+        this.username.set(username);
+        this.password.set(username == null ? null : password);
+        source = null;
+        return this;
+    }
+
+    // A null host removes the whole authority, userinfo and port included
+    public UrlBuilder setHost(CharSequence host) {
+        this.host.set(host);
+        source = null;
+        return this;
+    }
+
+    // -1 removes the port
+    public UrlBuilder setPort(int port) {
+        if (port < -1 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port specified: " + port);
+        }
+        this.port = port;
+        portDigits = 0;
+        portText.set(null);
+        source = null;
+        return this;
+    }
+
+    public UrlBuilder setPath(CharSequence path) {
+        this.path.set(path == null ? "" : path);
+        source = null;
+        return this;
+    }
+
+    // Replaces the whole query, null removes it
+    public UrlBuilder setQuery(CharSequence query) {
+        this.query.set(query);
+        clearParameters();
+        source = null;
+        return this;
+    }
+
+    // Appends a parameter, without '=' when value is null
+    public UrlBuilder addQueryParameter(CharSequence name, CharSequence value) {
+        splitQuery();
+        addParameter(name, 0, name.length(), value, 0, value == null ? 0 : value.length());
+        source = null;
+        return this;
+    }
+
+    // Removes every parameter called name, returns whether there was one. A query left untouched is written
+    // as it was given, trailing '&'s and a bare '?' included.
+    public boolean removeQueryParameter(CharSequence name) {
+        boolean wasSplit = splitQuery;
+        splitQuery();
+
+        int kept = 0;
+        for (int i = 0; i < parameterCount; i++) {
+            if (!nameEquals(i, name)) {
+                names[kept] = names[i];
+                values[kept] = values[i];
+                System.arraycopy(offsets, i * 4, offsets, kept * 4, 4);
+                kept++;
+            }
+        }
+
+        boolean removed = kept < parameterCount;
+        Arrays.fill(names, kept, parameterCount, null);
+        Arrays.fill(values, kept, parameterCount, null);
+        parameterCount = kept;
+        if (removed) {
+            source = null;
+        } else if (!wasSplit) {
+            clearParameters();
+        }
+        return removed;
+    }
+
+    // Replaces every parameter called name by a single one
+    public UrlBuilder setQueryParameter(CharSequence name, CharSequence value) {
+        removeQueryParameter(name);
+        return addQueryParameter(name, value);
+    }
+
+    // null removes the fragment
+    public UrlBuilder setFragment(CharSequence fragment) {
+        this.fragment.set(fragment);
+        source = null;
+        return this;
+    }
+
+    public void writeTo(Appendable out) throws IOException {
+        if (source != null) {
+            out.append(source);
+            return;
+        }
+
+        scheme.writeTo(out);
+        out.append(':');
+
+        if (host.isSet()) {
+            out.append("//");
+            if (username.isSet()) {
+                username.writeTo(out);
+                if (password.isSet()) {
+                    out.append(':');
+                    password.writeTo(out);
+                }
+                out.append('@');
+            }
+            host.writeTo(out);
+            if (portText.isSet()) {
+                out.append(':');
+                portText.writeTo(out);
+            } else if (port >= 0) {
+                out.append(':');
+                writeDigits(port, portDigits, out);
+            }
+        }
+
+        path.writeTo(out);
+
+        if (splitQuery) {
+            for (int i = 0; i < parameterCount; i++) {
+                out.append(i == 0 ? '?' : '&');
+                out.append(names[i], offsets[i * 4], offsets[i * 4 + 1]);
+                if (values[i] != null) {
+                    out.append('=');
+                    out.append(values[i], offsets[i * 4 + 2], offsets[i * 4 + 3]);
+                }
+            }
+        } else if (query.isSet()) {
+            out.append('?');
+            query.writeTo(out);
+        }
+
+        if (fragment.isSet()) {
+            out.append('#');
+            fragment.writeTo(out);
+        }
+    }
+
+    public StringBuilder writeTo(StringBuilder out) {
+        try {
+            writeTo((Appendable) out);
+            return out;
+        } catch (IOException e) {
+            // StringBuilder never throws it
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Puts the URL as Latin-1 bytes at the position of out. Throws BufferOverflowException when it does not
+    // fit, leaving whatever was written in place.
+    public void writeTo(ByteBuffer out) {
+        bytes.buffer = out;
+        try {
+            writeTo(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytes.buffer = null;
+        }
+    }
+
+    // Parses the URL, rejecting it like UrlParser.parse would
+    public LazyUrl build() throws MalformedURLException {
+        return UrlParser.parseLazy(source != null ? source : toString());
+    }
+
+    @Override
+    public String toString() {
+        if (source != null) {
+            return source.toString();
+        }
+        return writeTo(new StringBuilder()).toString();
+    }
+
+    private void splitQuery() {
+        if (splitQuery) {
+            return;
+        }
+        splitQuery = true;
+
+        if (!query.isSet()) {
+            return;
+        }
+
+        // Split like QueryParameters does
+        CharSequence text = query.text;
+        int start = query.start;
+        int end = query.end;
+        while (end > start && text.charAt(end - 1) == '&') {
+            end--;
+        }
+
+        int pairStart = start;
+        for (int i = start; i <= end && start < end; i++) {
+            if (i == end || text.charAt(i) == '&') {
+                int nameEnd = pairStart;
+                while (nameEnd < i && text.charAt(nameEnd) != '=') {
+                    nameEnd++;
+                }
+                addParameter(text, pairStart, nameEnd, nameEnd < i ? text : null, nameEnd + 1, i);
+                pairStart = i + 1;
+            }
+        }
+    }
+
+    private void addParameter(CharSequence name, int nameStart, int nameEnd, CharSequence value, int valueStart, int valueEnd) {
+        if (parameterCount == names.length) {
+            names = Arrays.copyOf(names, parameterCount * 2);
+            values = Arrays.copyOf(values, parameterCount * 2);
+            offsets = Arrays.copyOf(offsets, parameterCount * 8);
+        }
+
+        int index = parameterCount++;
+        names[index] = name;
+        values[index] = value;
+        offsets[index * 4] = nameStart;
+        offsets[index * 4 + 1] = nameEnd;
+        offsets[index * 4 + 2] = valueStart;
+        offsets[index * 4 + 3] = valueEnd;
+    }
+
+    private void clearParameters() {
+        Arrays.fill(names, 0, parameterCount, null);
+        Arrays.fill(values, 0, parameterCount, null);
+        parameterCount = 0;
+        splitQuery = false;
+    }
+
+    private boolean nameEquals(int index, CharSequence name) {
+        int start = offsets[index * 4];
+        int length = offsets[index * 4 + 1] - start;
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (names[index].charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void set(Range range, LazyUrl url, UrlComponent component) {
+        int start = url.getStart(component);
+        if (start >= 0) {
+            range.set(url.getSource(), start, url.getEnd(component));
+        }
+    }
+
+    private static void writeDigits(int value, int digits, Appendable out) throws IOException {
+        int divisor = 1;
+        for (int i = 1; divisor <= value / 10 || i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static final class Range {
+        // null when the component is absent
+        CharSequence text;
+        int start;
+        int end;
+
+        void set(CharSequence text) {
+            set(text, 0, text == null ? 0 : text.length());
+        }
+
+        void set(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isSet() {
+            return text != null;
+        }
+
+        void writeTo(Appendable out) throws IOException {
+            out.append(text, start, end);
+        }
+    }
+
+    // Writes chars as Latin-1 bytes, copying ByteSequences byte for byte
+    private static final class ByteBufferAppendable implements Appendable {
+        ByteBuffer buffer;
+
+        @Override
+        public Appendable append(CharSequence text) {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) {
+            if (text instanceof ByteSequence) {
+                ((ByteSequence) text).copyTo(start, end, buffer);
+                return this;
+            }
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("Not a Latin-1 char: " + c);
+            }
+            buffer.put((byte) c);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.tandrade.web;
+
+// Parts of a URL as split by RFC 3986, URL stands for the URL as a whole
+public enum UrlComponent {
+    URL,
+    SCHEME,
+    AUTHORITY,
+    USERINFO,
+    HOST,
+    PORT,
+    PATH,
+    QUERY,
+    FRAGMENT
+}
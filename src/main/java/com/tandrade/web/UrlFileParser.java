@@ -0,0 +1,152 @@
+package com.tandrade.web;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Parses files with one URL per line ("\n" or "\r\n" separated, empty lines are skipped). The file is memory
+// mapped a window at a time and every line is parsed in place through a ByteSequence, so no String is built
+// unless a component is asked for. Lines are validated exactly like UrlParser.parse.
+public final class UrlFileParser {
+    static final int DEFAULT_WINDOW = 1 << 28;
+
+    @FunctionalInterface
+    public interface Handler {
+        // url is null when the line was rejected, status then tells why. status is reused for every line.
+        void handle(CharSequence line, LazyUrl url, ParseStatus status);
+    }
+
+    private final int window;
+
+    public UrlFileParser() {
+        this(DEFAULT_WINDOW);
+    }
+
+    // Lines have to fit in a window
+    UrlFileParser(int window) {
+        this.window = window;
+    }
+
+    public UrlFileStats parse(Path file, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        long accepted = 0;
+        long rejected = 0;
+        ParseStatus status = new ParseStatus();
+
+        try (MappedLines lines = new MappedLines(file, window)) {
+            for (ByteSequence line = lines.next(); line != null; line = lines.next()) {
+                LazyUrl url = UrlParser.tryParse(line, status);
+                if (url != null) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+                handler.handle(line, url, status);
+            }
+
+            return new UrlFileStats(accepted, rejected, lines.size, System.nanoTime() - start);
+        }
+    }
+
+    // Lazily parsed URLs of the valid lines, rejected lines are skipped. The stream must be closed.
+    public Stream<LazyUrl> stream(Path file) throws IOException {
+        MappedLines lines = new MappedLines(file, window);
+        ParseStatus status = new ParseStatus();
+
+        Spliterator<LazyUrl> urls = new Spliterators.AbstractSpliterator<LazyUrl>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super LazyUrl> action) {
+                try {
+                    for (ByteSequence line = lines.next(); line != null; line = lines.next()) {
+                        LazyUrl url = UrlParser.tryParse(line, status);
+                        if (url != null) {
+                            action.accept(url);
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(urls, false).onClose(lines::close);
+    }
+
+    // Splits a file in lines, mapping it a window at a time. A line cut by the end of a window is read
+    // again from the start of the next one.
+    static final class MappedLines implements AutoCloseable {
+        private final FileChannel channel;
+        final long size;
+        private final int window;
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+        private int position;
+        private int limit;
+
+        MappedLines(Path file, int window) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.window = window;
+        }
+
+        ByteSequence next() throws IOException {
+            while (true) {
+                if (buffer == null || position >= limit) {
+                    long start = buffer == null ? 0 : bufferStart + position;
+                    if (start >= size) {
+                        return null;
+                    }
+                    map(start);
+                }
+
+                int end = position;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+
+                if (end == limit && bufferStart + limit < size) {
+                    if (position == 0) {
+                        throw new IOException("Line at byte " + bufferStart + " is longer than " + window + " bytes");
+                    }
+                    map(bufferStart + position);
+                    continue;
+                }
+
+                int start = position;
+                position = end + 1;
+                if (end > start && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+                if (end > start) {
+                    return new ByteSequence(null, buffer, start, end - start);
+                }
+            }
+        }
+
+        private void map(long start) throws IOException {
+            bufferStart = start;
+            limit = (int) Math.min(window, size - start);
+            position = 0;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, limit);
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.tandrade.web;
+
+// Totals of a UrlFileParser run
+public final class UrlFileStats {
+    private final long accepted;
+    private final long rejected;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    UrlFileStats(long accepted, long rejected, long bytes, long elapsedNanos) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Non empty lines seen
+    public long getUrls() {
+        return accepted + rejected;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+
+    public double getUrlsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getUrls() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d urls (%d accepted, %d rejected), %d bytes in %.3f s, %.1f MB/s, %.0f urls/s",
+                getUrls(), accepted, rejected, bytes, elapsedNanos / 1e9, getBytesPerSecond() / 1e6, getUrlsPerSecond());
+    }
+}
@@ -0,0 +1,290 @@
+package com.tandrade.web;
+
+import java.util.Map;
+
+// 128 bit MurmurHash3 of the canonical form of a Url, computed in one walk over its parsed components
+// without building any String. The canonical form is the UrlNormalizer one without the fragment: scheme
+// and host are lower cased, escapes normalized, dot segments removed and the default port dropped. Query
+// parameters are hashed one by one and the hashes added up, so their order does not matter, as if they
+// were sorted. An empty query counts as no query. Instances are reusable but not thread safe.
+public final class UrlFingerprinter {
+    private final Hasher hasher = new Hasher();
+    private final Hasher parameterHasher = new Hasher();
+    private final UrlNormalizer.Buffer buffer = new UrlNormalizer.Buffer();
+
+    // First 64 bits of the fingerprint of url, the whole 128 bits are then available from getHigh and getLow
+    public long fingerprint(Url url) {
+        hasher.reset();
+
+        if (url instanceof LazyUrl) {
+            fingerprint((LazyUrl) url);
+        } else {
+            fingerprintUrl(url);
+        }
+
+        hasher.finish();
+        return hasher.h1;
+    }
+
+    // First 64 bits of the last fingerprint
+    public long getHigh() {
+        return hasher.h1;
+    }
+
+    // Last 64 bits of the last fingerprint
+    public long getLow() {
+        return hasher.h2;
+    }
+
+    // Reads the components straight from the source
+    private void fingerprint(LazyUrl url) {
+        CharSequence source = url.getSource();
+        int schemeEnd = url.getEnd(UrlComponent.SCHEME);
+        hash(hasher, source, 0, schemeEnd, true);
+        hasher.put(':');
+
+        boolean authority = url.getStart(UrlComponent.HOST) >= 0;
+        if (authority) {
+            hasher.put('/');
+            hasher.put('/');
+            if (url.getStart(UrlComponent.USERINFO) >= 0) {
+                hash(hasher, source, url.getStart(UrlComponent.USERINFO), url.getEnd(UrlComponent.USERINFO), false);
+                hasher.put('@');
+            }
+            hash(hasher, source, url.getStart(UrlComponent.HOST), url.getEnd(UrlComponent.HOST), true);
+            hashPort(url.getPort(), url.getPortDigits(), source, schemeEnd);
+        }
+
+        hashPath(source, url.getStart(UrlComponent.PATH), url.getEnd(UrlComponent.PATH), authority);
+
+        if (url.getStart(UrlComponent.QUERY) >= 0) {
+            hashQuery(source, url.getStart(UrlComponent.QUERY), url.getEnd(UrlComponent.QUERY));
+        }
+    }
+
+    private void fingerprintUrl(Url url) {
+        String scheme = url.getProtocol();
+        hash(hasher, scheme, 0, scheme.length(), true);
+        hasher.put(':');
+
+        String hostname = url.getHostname();
+        if (hostname != null) {
+            hasher.put('/');
+            hasher.put('/');
+            String username = url.getUsername();
+            if (username != null) {
+                hash(hasher, username, 0, username.length(), false);
+                String password = url.getPassword();
+                if (password != null) {
+                    hasher.put(':');
+                    hash(hasher, password, 0, password.length(), false);
+                }
+                hasher.put('@');
+            }
+            hash(hasher, hostname, 0, hostname.length(), true);
+            hashPort(url.getPort(), url.getPortDigits(), scheme, scheme.length());
+        }
+
+        String path = url.getPath();
+        hashPath(path, 0, path.length(), hostname != null);
+
+        QueryParameters queryParameters = url.getQueryParameters();
+        if (queryParameters != null) {
+            hashQuery(queryParameters.getSource(), queryParameters.getStart(), queryParameters.getEnd());
+        } else if (url.getArguments() != null) {
+            // Urls built by subclasses may only have the arguments
+            hashArguments(url.getArguments());
+        }
+    }
+
+    // The port as UrlNormalizer writes it: as given, leading zeros included, unless it is the default one
+    private void hashPort(int port, int digits, CharSequence scheme, int schemeEnd) {
+        int defaultPort = UrlScanner.defaultPort(scheme, 0, schemeEnd, true);
+        if (digits < 0) {
+            // Only the value is known
+            digits = port == 0 || port == defaultPort ? 0 : Integer.toString(port).length();
+        }
+        if (digits == 0 || defaultPort != 0 && port == defaultPort) {
+            return;
+        }
+
+        hasher.put(':');
+        int divisor = 1;
+        for (int i = 1; i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            hasher.put((char) ('0' + port / divisor % 10));
+        }
+    }
+
+    private void hashPath(CharSequence text, int start, int end, boolean authority) {
+        char[] chars = buffer.get(end - start);
+        int length = UrlNormalizer.copy(text, start, end, chars, 0, false);
+        length = UrlNormalizer.removeDotSegments(chars, 0, length);
+
+        if (authority && length == 0) {
+            hasher.put('/');
+        } else if (!authority && length >= 2 && chars[0] == '/' && chars[1] == '/') {
+            // As UrlNormalizer does, so the path cannot pass for an authority
+            hasher.put('/');
+            hasher.put('.');
+        }
+        for (int i = 0; i < length; i++) {
+            hasher.put(chars[i]);
+        }
+    }
+
+    // Parameters are split like QueryParameters splits them
+    private void hashQuery(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == '&') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        long count = 0;
+        long sumHigh = 0;
+        long sumLow = 0;
+        int pairStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == '&') {
+                parameterHasher.reset();
+                hash(parameterHasher, text, pairStart, i, false);
+                parameterHasher.finish();
+                count++;
+                sumHigh += parameterHasher.h1;
+                sumLow += parameterHasher.h2;
+                pairStart = i + 1;
+            }
+        }
+        putSums(count, sumHigh, sumLow);
+    }
+
+    private void hashArguments(Map<String, String> arguments) {
+        long sumHigh = 0;
+        long sumLow = 0;
+        for (Map.Entry<String, String> argument : arguments.entrySet()) {
+            parameterHasher.reset();
+            hash(parameterHasher, argument.getKey(), 0, argument.getKey().length(), false);
+            if (argument.getValue() != null) {
+                parameterHasher.put('=');
+                hash(parameterHasher, argument.getValue(), 0, argument.getValue().length(), false);
+            }
+            parameterHasher.finish();
+            sumHigh += parameterHasher.h1;
+            sumLow += parameterHasher.h2;
+        }
+        if (!arguments.isEmpty()) {
+            putSums(arguments.size(), sumHigh, sumLow);
+        }
+    }
+
+    private void putSums(long count, long sumHigh, long sumLow) {
+        hasher.put('?');
+        hasher.putLong(count);
+        hasher.putLong(sumHigh);
+        hasher.putLong(sumLow);
+    }
+
+    // Feeds text[start, end) with its escapes normalized as UrlNormalizer.copy does
+    private static void hash(Hasher hasher, CharSequence text, int start, int end, boolean lowerCase) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int b = c == '%' ? PercentDecoder.escape(text, i, end) : -1;
+            if (b < 0) {
+                hasher.put(lowerCase ? UrlNormalizer.toLowerCase(c) : c);
+            } else if (UrlNormalizer.isUnreserved(b)) {
+                hasher.put(lowerCase ? UrlNormalizer.toLowerCase((char) b) : (char) b);
+                i += 2;
+            } else {
+                hasher.put('%');
+                hasher.put(UrlNormalizer.HEX[b >> 4]);
+                hasher.put(UrlNormalizer.HEX[b & 0xF]);
+                i += 2;
+            }
+        }
+    }
+
+    // MurmurHash3 x64 128 over the UTF-16LE bytes of the chars it is given
+    private static final class Hasher {
+        private static final long C1 = 0x87C37B91114253D5L;
+        private static final long C2 = 0x4CF5AD432745937FL;
+
+        long h1;
+        long h2;
+        private long k1;
+        private long k2;
+        // Chars in the current 16 byte block
+        private int count;
+        private long length;
+
+        void reset() {
+            h1 = h2 = k1 = k2 = 0;
+            count = 0;
+            length = 0;
+        }
+
+        void put(char c) {
+            if (count < 4) {
+                k1 |= (long) c << (count << 4);
+            } else {
+                k2 |= (long) c << ((count - 4) << 4);
+            }
+            length += 2;
+
+            if (++count == 8) {
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27) + h2;
+                h1 = h1 * 5 + 0x52DCE729;
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31) + h1;
+                h2 = h2 * 5 + 0x38495AB5;
+                k1 = k2 = 0;
+                count = 0;
+            }
+        }
+
+        void putLong(long value) {
+            for (int shift = 0; shift < 64; shift += 16) {
+                put((char) (value >>> shift));
+            }
+        }
+
+        void finish() {
+            if (count > 4) {
+                h2 ^= mixK2(k2);
+            }
+            if (count > 0) {
+                h1 ^= mixK1(k1);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+        }
+
+        private static long mixK1(long k1) {
+            return Long.rotateLeft(k1 * C1, 31) * C2;
+        }
+
+        private static long mixK2(long k2) {
+            return Long.rotateLeft(k2 * C2, 33) * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xFF51AFD7ED558CCDL;
+            k ^= k >>> 33;
+            k *= 0xC4CEB9FE1A85EC53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
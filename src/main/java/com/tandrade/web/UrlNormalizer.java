@@ -0,0 +1,237 @@
+package com.tandrade.web;
+
+import java.net.MalformedURLException;
+import java.util.EnumSet;
+import java.util.Set;
+
+// RFC 3986 section 6 normalization: scheme and host are lower cased, escapes of unreserved chars are
+// decoded and the hex digits of the others upper cased, dot segments are removed from the path, an empty
+// path after an authority becomes "/" and the default port of the scheme is dropped. The normalized URL is
+// written to a per thread char buffer, so normalizing only allocates the returned String, and a URL that is
+// already normal is returned as is.
+public final class UrlNormalizer {
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    private final Set<UrlComponent> eager;
+
+    public UrlNormalizer() {
+        this(EnumSet.noneOf(UrlComponent.class));
+    }
+
+    // Components in eager are decoded by parse, the others when their getDecoded getter is first called.
+    // Only USERINFO, PATH, QUERY and FRAGMENT are ever decoded.
+    public UrlNormalizer(Set<UrlComponent> eager) {
+        for (UrlComponent component : eager) {
+            if (component != UrlComponent.USERINFO && component != UrlComponent.PATH
+                    && component != UrlComponent.QUERY && component != UrlComponent.FRAGMENT) {
+                throw new IllegalArgumentException("Component is never decoded: " + component);
+            }
+        }
+
+        this.eager = EnumSet.noneOf(UrlComponent.class);
+        this.eager.addAll(eager);
+    }
+
+    // Parses the normalized form of url
+    public LazyUrl parse(CharSequence url) throws MalformedURLException {
+        LazyUrl parsedUrl = UrlParser.parseLazy(normalize(url));
+
+        if (eager.contains(UrlComponent.USERINFO)) {
+            parsedUrl.getDecodedUsername();
+            parsedUrl.getDecodedPassword();
+        }
+        if (eager.contains(UrlComponent.PATH)) {
+            parsedUrl.getDecodedPath();
+        }
+        if (eager.contains(UrlComponent.QUERY)) {
+            parsedUrl.getDecodedArguments();
+        }
+        if (eager.contains(UrlComponent.FRAGMENT)) {
+            parsedUrl.getDecodedDocumentPart();
+        }
+        return parsedUrl;
+    }
+
+    // Rejects the URLs UrlParser.parse rejects, with the same messages
+    public static String normalize(CharSequence url) throws MalformedURLException {
+        UrlScanner scanner = UrlParser.scanner();
+
+        if (!scanner.scan(url)) {
+            throw UrlParser.failure(url, scanner);
+        }
+
+        return normalize(url, scanner);
+    }
+
+    private static String normalize(CharSequence url, UrlScanner scanner) {
+        int n = url.length();
+        // Only the "/" of an empty path or the "/." guarding a path from looking like an authority can
+        // make the URL longer
+        char[] chars = buffers.get().get(n + 2);
+        int length = 0;
+
+        for (int i = 0; i < scanner.schemeEnd; i++) {
+            chars[length++] = toLowerCase(url.charAt(i));
+        }
+        chars[length++] = ':';
+
+        if (scanner.authorityStart >= 0) {
+            chars[length++] = '/';
+            chars[length++] = '/';
+            if (scanner.userinfoEnd >= 0) {
+                length = copy(url, scanner.authorityStart, scanner.userinfoEnd, chars, length, false);
+                chars[length++] = '@';
+            }
+            length = copy(url, scanner.hostStart, scanner.hostEnd, chars, length, true);
+
+            if (scanner.portStart >= 0 && !isDefaultPort(url, scanner)) {
+                chars[length++] = ':';
+                for (int i = scanner.portStart; i < scanner.authorityEnd; i++) {
+                    chars[length++] = url.charAt(i);
+                }
+            }
+        }
+
+        int pathStart = length;
+        length = copy(url, scanner.pathStart, scanner.pathEnd, chars, length, false);
+        length = removeDotSegments(chars, pathStart, length);
+        if (scanner.authorityStart >= 0 && length == pathStart) {
+            chars[length++] = '/';
+        } else if (scanner.authorityStart < 0 && length - pathStart >= 2 && chars[pathStart] == '/' && chars[pathStart + 1] == '/') {
+            // "a:/.//b" must not become "a://b", where b would be a host
+            System.arraycopy(chars, pathStart, chars, pathStart + 2, length - pathStart);
+            chars[pathStart] = '/';
+            chars[pathStart + 1] = '.';
+            length += 2;
+        }
+
+        if (scanner.queryStart >= 0) {
+            chars[length++] = '?';
+            length = copy(url, scanner.queryStart, scanner.queryEnd, chars, length, false);
+        }
+        if (scanner.fragmentStart >= 0) {
+            chars[length++] = '#';
+            length = copy(url, scanner.fragmentStart, n, chars, length, false);
+        }
+
+        if (length == n && matches(url, chars)) {
+            return url.toString();
+        }
+        return new String(chars, 0, length);
+    }
+
+    // RFC 3986 section 5.2.4, in place over chars[start, end). Returns the new end.
+    static int removeDotSegments(char[] chars, int start, int end) {
+        int i = start;
+        int length = start;
+
+        while (i < end) {
+            if (startsWith(chars, i, end, "../")) {
+                i += 3;
+            } else if (startsWith(chars, i, end, "./") || startsWith(chars, i, end, "/./")) {
+                i += 2;
+            } else if (i + 2 == end && startsWith(chars, i, end, "/.")) {
+                i++;
+                chars[i] = '/';
+            } else if (startsWith(chars, i, end, "/../")) {
+                i += 3;
+                length = removeLastSegment(chars, start, length);
+            } else if (i + 3 == end && startsWith(chars, i, end, "/..")) {
+                i += 2;
+                chars[i] = '/';
+                length = removeLastSegment(chars, start, length);
+            } else if ((i + 1 == end && chars[i] == '.') || (i + 2 == end && startsWith(chars, i, end, ".."))) {
+                i = end;
+            } else {
+                // First segment, with its leading '/'. Never overwrites unread input, the output is never
+                // longer than what was read.
+                do {
+                    chars[length++] = chars[i++];
+                } while (i < end && chars[i] != '/');
+            }
+        }
+        return length;
+    }
+
+    private static int removeLastSegment(char[] chars, int start, int end) {
+        while (end > start && chars[--end] != '/') {
+            // Drops the segment, then its '/'
+        }
+        return end;
+    }
+
+    private static boolean startsWith(char[] chars, int i, int end, String prefix) {
+        if (end - i < prefix.length()) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (chars[i + k] != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Copies url[start, end) decoding the escapes of unreserved chars and upper casing the others
+    static int copy(CharSequence url, int start, int end, char[] chars, int length, boolean lowerCase) {
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            int b = c == '%' ? PercentDecoder.escape(url, i, end) : -1;
+            if (b < 0) {
+                chars[length++] = lowerCase ? toLowerCase(c) : c;
+            } else if (isUnreserved(b)) {
+                chars[length++] = lowerCase ? toLowerCase((char) b) : (char) b;
+                i += 2;
+            } else {
+                chars[length++] = '%';
+                chars[length++] = HEX[b >> 4];
+                chars[length++] = HEX[b & 0xF];
+                i += 2;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isDefaultPort(CharSequence url, UrlScanner scanner) {
+        int defaultPort = UrlScanner.defaultPort(url, 0, scanner.schemeEnd, true);
+        if (defaultPort == 0) {
+            return false;
+        }
+
+        int port = 0;
+        for (int i = scanner.portStart; i < scanner.authorityEnd; i++) {
+            port = port * 10 + url.charAt(i) - '0';
+        }
+        return port == defaultPort;
+    }
+
+    private static boolean matches(CharSequence url, char[] chars) {
+        for (int i = 0; i < url.length(); i++) {
+            if (url.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    static final class Buffer {
+        private char[] chars = new char[256];
+
+        char[] get(int capacity) {
+            if (chars.length < capacity) {
+                chars = new char[Math.max(capacity, chars.length * 2)];
+            }
+            return chars;
+        }
+    }
+}
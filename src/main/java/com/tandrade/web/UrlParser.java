@@ -1,14 +1,14 @@
 package com.tandrade.web;
 
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 // All based on RFC 3986
 public class UrlParser {
     // Regex based on https://tools.ietf.org/html/rfc3986
-    private static final String decOctet = "(?:(?:[1-9]|1\\d|2[0-4])\\d|25[0-5])";
+    private static final String decOctet = "(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]\\d|\\d)";
     private static final String hexDig = "[a-fA-F0-9]";
     private static final String hex16 = hexDig + "{1,4}";
     private static final String unreserved = "[-\\w\\.~]";
@@ -24,15 +24,15 @@ public class UrlParser {
     private static final String ls32 = "(?:" + hex16 + ":" + hex16 +"|" + ipv4 + ")";
     private static final String ipv6Part = "(?:" + hex16 + ":)";
     private static final String ipv6 = "(?:"
-                                                + ipv6Part + "{6}" + ls32 + "|"
-                                         + "::" + ipv6Part + "{5}" + ls32 + "|"
-                                 + hex16 + "::" + ipv6Part + "{4}" + ls32 + "|"
-            + ipv6Part + "?"     + hex16 + "::" + ipv6Part + "{3}" + ls32 + "|"
-            + ipv6Part + "{0,2}" + hex16 + "::" + ipv6Part + "{2}" + ls32 + "|"
-            + ipv6Part + "{0,3}" + hex16 + "::" + ipv6Part         + ls32 + "|"
-            + ipv6Part + "{0,4}" + hex16 + "::"                    + ls32 + "|"
-            + ipv6Part + "{0,5}" + hex16 + "::"                    + hex16 + "|"
-            + ipv6Part + "{0,6}" + hex16 + "::)";
+                                                          + ipv6Part + "{6}" + ls32 + "|"
+                                                   + "::" + ipv6Part + "{5}" + ls32 + "|"
+                                 + "(?:" + hex16 + ")?::" + ipv6Part + "{4}" + ls32 + "|"
+            + "(?:" + ipv6Part + "?"     + hex16 + ")?::" + ipv6Part + "{3}" + ls32 + "|"
+            + "(?:" + ipv6Part + "{0,2}" + hex16 + ")?::" + ipv6Part + "{2}" + ls32 + "|"
+            + "(?:" + ipv6Part + "{0,3}" + hex16 + ")?::" + ipv6Part         + ls32 + "|"
+            + "(?:" + ipv6Part + "{0,4}" + hex16 + ")?::"                    + ls32 + "|"
+            + "(?:" + ipv6Part + "{0,5}" + hex16 + ")?::"                    + hex16 + "|"
+            + "(?:" + ipv6Part + "{0,6}" + hex16 + ")?::)";
     private static final String segmentChar = "(?:" + pchar + ")";
     private static final String query = "(?:" + pchar + "|/|\\?)*";
     private static final String queryParamName = "(?:" + pcharNoEq + "|/|\\?)*";
@@ -41,7 +41,8 @@ public class UrlParser {
 
     public static Pattern urlComponents = Pattern.compile("(?:([^:/?#]+):)(?://([^/?#]*))?([^?#]*)(?:\\?([^#]*))?(?:#(.*))?");
     public static Pattern scheme = Pattern.compile("^[a-zA-Z][-a-zA-Z+\\.]*");
-    public static Pattern authority = Pattern.compile("(?:([^@]*)@)?([^:]*)(?::(.*))?");
+    // An IP literal host runs to its closing bracket instead of stopping at the first ':'
+    public static Pattern authority = Pattern.compile("(?:([^@]*)@)?(\\[[0-9a-fA-F:.]*\\](?=:|\\z)|[^:]*)(?::(.*))?");
     public static Pattern userinfo = Pattern.compile("(" + username + ")(?::(" + password + "))?");
     public static Pattern hostname = Pattern.compile("(?:" + regName + "|" + ipv4 + "|\\[" + ipv6 + "\\])");
     public static Pattern port = Pattern.compile("\\d{1,5}");
@@ -52,129 +53,160 @@ public class UrlParser {
     public static Pattern queryParam = Pattern.compile("(?:(" + queryParamName + ")(?:=(" + query + "))?)");
     public static Pattern pageFragment = Pattern.compile(fragment);
 
+    private static final ThreadLocal<UrlScanner> scanners = ThreadLocal.withInitial(UrlScanner::new);
+    private static volatile UrlParserMetrics metrics;
+
     public static Url parse(String url) throws MalformedURLException {
-        Matcher urlMatcher = urlComponents.matcher(url);
+        UrlScanner scanner = scanners.get();
 
-        if (!urlMatcher.matches()) {
-            throw new MalformedURLException("Bad URL format");
+        if (!scan(scanner, url)) {
+            throw failure(url, scanner);
         }
 
-        String scheme = urlMatcher.group(1);
-        String authority = urlMatcher.group(2);
-        String path = urlMatcher.group(3);
-        String query = urlMatcher.group(4);
-        String fragment = urlMatcher.group(5);
-
+        String scheme = url.substring(0, scanner.schemeEnd);
         String username = null;
         String password = null;
         String hostname = null;
-        int port = 0;
+        String path = url.substring(scanner.pathStart, scanner.pathEnd);
+        QueryParameters queryParameters = null;
         HashMap<String, String> queryParams = null;
+        String fragment = null;
 
-
-        // Validate scheme, a.k.a protocol
-        if (scheme != null) {
-            if (!UrlParser.scheme.matcher(scheme).matches()) {
-                throw new MalformedURLException("Invalid protocol specified: " + scheme);
+        if (scanner.userinfoEnd >= 0) {
+            if (scanner.passwordStart >= 0) {
+                username = url.substring(scanner.authorityStart, scanner.passwordStart - 1);
+                password = url.substring(scanner.passwordStart, scanner.userinfoEnd);
+            } else {
+                username = url.substring(scanner.authorityStart, scanner.userinfoEnd);
             }
+        }
 
-            switch (scheme) {
-                case "ftp":
-                    port = 21;
-                    break;
-                case "http":
-                case "ws":
-                    port = 80;
-                    break;
-                case "https":
-                case "wss":
-                    port = 443;
-                    break;
-                default:
+        if (scanner.hostStart >= 0) {
+            hostname = url.substring(scanner.hostStart, scanner.hostEnd);
+        }
+
+        String query = null;
+        if (scanner.queryStart >= 0) {
+            query = url.substring(scanner.queryStart, scanner.queryEnd);
+            if (!query.isEmpty()) {
+                queryParameters = new QueryParameters(query, 0, query.length());
+                queryParams = queryParameters.toMap();
             }
         }
 
-        // Validate authority
-        if (authority != null) {
-            Matcher authorityMatcher = UrlParser.authority.matcher(authority);
+        if (scanner.fragmentStart >= 0) {
+            fragment = url.substring(scanner.fragmentStart);
+        }
 
-            if (!authorityMatcher.matches()) {
-                throw new MalformedURLException("Bad authority format: " + authority);
-            }
+        int portDigits = scanner.portStart < 0 ? 0 : scanner.authorityEnd - scanner.portStart;
+        return new Url(scheme, username, password, hostname, scanner.port, portDigits, path, queryParams, queryParameters, query, fragment);
+    }
 
-            String userinfo = authorityMatcher.group(1);
-            hostname = authorityMatcher.group(2);
-            String portNumber = authorityMatcher.group(3);
+    // Validates like parse, but the returned Url only keeps the offsets of each component and creates its
+    // Strings and arguments map when a getter is first called. The url must not be modified afterwards.
+    public static LazyUrl parseLazy(CharSequence url) throws MalformedURLException {
+        UrlScanner scanner = scanners.get();
 
-            // Validate userinfo
-            if (userinfo != null) {
-                Matcher userinfoMatcher = UrlParser.userinfo.matcher(userinfo);
+        if (!scan(scanner, url)) {
+            throw failure(url, scanner);
+        }
 
-                if (!userinfoMatcher.matches()) {
-                    throw new MalformedURLException("Invalid userinfo specified: " + userinfo);
-                }
+        return new LazyUrl(url, scanner);
+    }
 
-                username = userinfoMatcher.group(1);
-                password = userinfoMatcher.group(2);
-            }
+    // Parses ASCII bytes in place, the returned Url reads its components straight from them
+    public static LazyUrl parse(byte[] url, int offset, int length) throws MalformedURLException {
+        return parseLazy(new ByteSequence(url, offset, length));
+    }
 
-            // Validate host
-            if (hostname != null && !UrlParser.hostname.matcher(hostname).matches()) {
-                throw new MalformedURLException("Invalid host specified: " + hostname);
-            }
+    // Parses the bytes between the position and the limit of url, which are left untouched
+    public static LazyUrl parse(ByteBuffer url) throws MalformedURLException {
+        return parseLazy(new ByteSequence(url));
+    }
 
-            // Validate port
-            if (portNumber != null) {
-                if (!UrlParser.port.matcher(portNumber).matches()) {
-                    throw new MalformedURLException("Invalid path specified: " + port);
-                }
+    // Accepts exactly the URLs parse accepts, without allocating on either outcome
+    public static boolean isValid(CharSequence url) {
+        return scan(scanners.get(), url);
+    }
 
-                port = Integer.parseInt(portNumber);
-            }
+    // Parses like parseLazy, but a malformed URL is reported through status and null is returned instead of
+    // throwing. The same status can be reused for every call.
+    public static LazyUrl tryParse(CharSequence url, ParseStatus status) {
+        UrlScanner scanner = scanners.get();
+
+        if (!scan(scanner, url)) {
+            status.fail(scanner.error, scanner.errorIndex);
+            return null;
         }
 
-        // Validate path
-        if (path != null) {
-            if (authority != null) {
-                if (!UrlParser.pathWithAuthority.matcher(path).matches()) {
-                    throw new MalformedURLException("Invalid path specified: " + path);
-                }
-            } else {
-                if (!UrlParser.pathNoAuthority.matcher(path).matches()) {
-                    throw new MalformedURLException("Invalid path specified: " + path);
-                }
-            }
+        status.succeed();
+        return new LazyUrl(url, scanner);
+    }
+
+    // Same as isValid, filling status with the reason of a rejection
+    public static boolean validate(CharSequence url, ParseStatus status) {
+        UrlScanner scanner = scanners.get();
+
+        if (!scan(scanner, url)) {
+            status.fail(scanner.error, scanner.errorIndex);
+            return false;
         }
 
-        // Validate and parses query
-        if (query != null) {
-            if (!UrlParser.queryString.matcher(query).matches()) {
-                throw new MalformedURLException("Invalid query string specified: " + query);
-            }
+        status.succeed();
+        return true;
+    }
+
+    // Records every URL parsed from now on, by this class and by the other parsers of the package, into
+    // metrics. null turns recording off.
+    public static void setMetrics(UrlParserMetrics metrics) {
+        UrlParser.metrics = metrics;
+    }
 
-            if (!query.trim().isEmpty()) {
-                queryParams = new HashMap<>();
+    // null when no metrics are recorded
+    public static UrlParserMetrics getMetrics() {
+        return metrics;
+    }
 
-                for (String param : query.trim().split("&")) {
-                    Matcher queryParamMatcher = UrlParser.queryParam.matcher(param);
+    // Scans url, through the installed metrics if any
+    static boolean scan(UrlScanner scanner, CharSequence url) {
+        return scan(scanner, url, null);
+    }
 
-                    if (!queryParamMatcher.matches()) {
-                        continue;
-                    }
+    static boolean scan(UrlScanner scanner, CharSequence url, SchemeProfile[] profiles) {
+        UrlParserMetrics metrics = UrlParser.metrics;
+        return metrics == null ? scanner.scan(url, profiles) : metrics.scan(scanner, url, profiles);
+    }
 
-                    String argument = queryParamMatcher.group(1);
-                    String value = queryParamMatcher.group(2);
+    // Scanner of the calling thread, for callers that parse many URLs in a row
+    static UrlScanner scanner() {
+        return scanners.get();
+    }
 
-                    queryParams.put(argument, value);
-                }
-            }
-        }
+    static String substring(CharSequence url, int start, int end) {
+        return url.subSequence(start, end).toString();
+    }
 
-        // Validate fragment
-        if (fragment != null && !UrlParser.pageFragment.matcher(fragment).matches()) {
-            throw new MalformedURLException("Invalid fragment specified: " + fragment);
+    static MalformedURLException failure(CharSequence url, UrlScanner scanner) {
+        switch (scanner.error) {
+            case SCHEME:
+                return new MalformedURLException("Invalid protocol specified: " + substring(url, 0, scanner.schemeEnd));
+            case AUTHORITY:
+                return new MalformedURLException("Bad authority format: " + substring(url, scanner.authorityStart, scanner.authorityEnd));
+            case USERINFO:
+                return new MalformedURLException("Invalid userinfo specified: " + substring(url, scanner.authorityStart, scanner.userinfoEnd));
+            case HOST:
+                return new MalformedURLException("Invalid host specified: " + substring(url, scanner.hostStart, scanner.hostEnd));
+            case PORT:
+                // Reports the default port, as the regex based parser always did
+                return new MalformedURLException("Invalid path specified: " + scanner.port);
+            case PATH:
+                return new MalformedURLException("Invalid path specified: " + substring(url, scanner.pathStart, scanner.pathEnd));
+            case QUERY:
+                return new MalformedURLException("Invalid query string specified: " + substring(url, scanner.queryStart, scanner.queryEnd));
+            case FRAGMENT:
+                return new MalformedURLException("Invalid fragment specified: " + substring(url, scanner.fragmentStart, scanner.length));
+            default:
+                return new MalformedURLException("Bad URL format");
         }
-
-        return new Url(scheme, username, password, hostname, port, path, queryParams, fragment);
     }
 }
@@ -0,0 +1,394 @@
+package com.tandrade.web;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts and times the URLs parsed while installed with UrlParser.setMetrics: accepted URLs, rejected URLs
+// by failed component, which is what tells the MalformedURLException messages of parse apart, accepted URLs
+// by scheme and host type, and latency histograms of whole parses and optionally of each validation stage.
+// Counters are LongAdders, whose cells are striped over contending threads, and histograms have fixed
+// buckets bumped atomically, so recording never locks. Without metrics installed a parse only reads one
+// volatile field. Readable through getSnapshot or, once registered with an MBeanServer, through JMX.
+public final class UrlParserMetrics implements UrlParserMetricsMXBean {
+    // Schemes counted by name, any other one is counted as "other"
+    private static final String[] SCHEMES = {"http", "https", "ws", "wss", "ftp"};
+    private static final UrlComponent[] STAGES = {UrlComponent.SCHEME, UrlComponent.AUTHORITY, UrlComponent.PATH, UrlComponent.QUERY, UrlComponent.FRAGMENT};
+    private static final UrlComponent[] COMPONENTS = UrlComponent.values();
+    private static final HostType[] HOST_TYPES = HostType.values();
+
+    private final boolean stageLatencies;
+    private final LongAdder accepted = new LongAdder();
+    // By UrlComponent ordinal
+    private final LongAdder[] rejected = adders(COMPONENTS.length);
+    // By index in SCHEMES, then the other schemes
+    private final LongAdder[] schemes = adders(SCHEMES.length + 1);
+    // By HostType ordinal, then the URLs without authority
+    private final LongAdder[] hostTypes = adders(HOST_TYPES.length + 1);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // By UrlComponent ordinal, only set for the stages when they are timed
+    private final LatencyHistogram[] stageLatency = new LatencyHistogram[COMPONENTS.length];
+
+    public UrlParserMetrics() {
+        this(false);
+    }
+
+    // With stageLatencies, the scheme, authority, path, query and fragment stages are timed too, which
+    // costs a clock read per stage
+    public UrlParserMetrics(boolean stageLatencies) {
+        this.stageLatencies = stageLatencies;
+        if (stageLatencies) {
+            for (UrlComponent stage : STAGES) {
+                stageLatency[stage.ordinal()] = new LatencyHistogram();
+            }
+        }
+    }
+
+    // Counters read one after the other while parsing goes on, so they may not add up exactly
+    public Snapshot getSnapshot() {
+        Histogram[] stages = new Histogram[COMPONENTS.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = stageLatency[i] == null ? null : stageLatency[i].snapshot();
+        }
+        return new Snapshot(accepted.sum(), sums(rejected), sums(schemes), sums(hostTypes), latency.snapshot(), stages);
+    }
+
+    @Override
+    public void reset() {
+        accepted.reset();
+        reset(rejected);
+        reset(schemes);
+        reset(hostTypes);
+        latency.reset();
+        for (LatencyHistogram histogram : stageLatency) {
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        long total = 0;
+        for (LongAdder adder : rejected) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getRejectedByComponent() {
+        return getSnapshot().getRejectedByComponent();
+    }
+
+    @Override
+    public Map<String, Long> getAcceptedByScheme() {
+        return getSnapshot().getAcceptedByScheme();
+    }
+
+    @Override
+    public Map<String, Long> getAcceptedByHostType() {
+        return getSnapshot().getAcceptedByHostType();
+    }
+
+    @Override
+    public long getLatencyMedianNanos() {
+        return latency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLatency99Nanos() {
+        return latency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLatency999Nanos() {
+        return latency.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.snapshot().getMax();
+    }
+
+    @Override
+    public Map<String, Long> getStageLatency99Nanos() {
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        for (UrlComponent stage : STAGES) {
+            LatencyHistogram histogram = stageLatency[stage.ordinal()];
+            if (histogram != null) {
+                percentiles.put(stage.name(), histogram.snapshot().getValueAtPercentile(99));
+            }
+        }
+        return percentiles;
+    }
+
+    boolean scan(UrlScanner scanner, CharSequence url, SchemeProfile[] profiles) {
+        long start = System.nanoTime();
+        boolean valid;
+        if (stageLatencies) {
+            scanner.metrics = this;
+            scanner.stageStart = start;
+            try {
+                valid = scanner.scan(url, profiles);
+            } finally {
+                scanner.metrics = null;
+            }
+        } else {
+            valid = scanner.scan(url, profiles);
+        }
+        latency.record(System.nanoTime() - start);
+
+        if (!valid) {
+            rejected[scanner.error.ordinal()].increment();
+            return false;
+        }
+        accepted.increment();
+        schemes[schemeIndex(url, scanner.schemeEnd)].increment();
+        HostType hostType = scanner.hostType(url);
+        hostTypes[hostType == null ? HOST_TYPES.length : hostType.ordinal()].increment();
+        return true;
+    }
+
+    void endStage(UrlScanner scanner, UrlComponent stage) {
+        long now = System.nanoTime();
+        stageLatency[stage.ordinal()].record(now - scanner.stageStart);
+        scanner.stageStart = now;
+    }
+
+    // Schemes are case insensitive, setting 0x20 lower cases the letters and leaves '-', '+' and '.' alone
+    private static int schemeIndex(CharSequence url, int schemeEnd) {
+        for (int i = 0; i < SCHEMES.length; i++) {
+            String scheme = SCHEMES[i];
+            if (scheme.length() != schemeEnd) {
+                continue;
+            }
+            int j = 0;
+            while (j < schemeEnd && (url.charAt(j) | 0x20) == scheme.charAt(j)) {
+                j++;
+            }
+            if (j == schemeEnd) {
+                return i;
+            }
+        }
+        return SCHEMES.length;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static void reset(LongAdder[] adders) {
+        for (LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+
+    public static final class Snapshot {
+        private final long accepted;
+        private final long[] rejected;
+        private final long[] schemes;
+        private final long[] hostTypes;
+        private final Histogram latency;
+        private final Histogram[] stageLatency;
+
+        private Snapshot(long accepted, long[] rejected, long[] schemes, long[] hostTypes, Histogram latency, Histogram[] stageLatency) {
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.schemes = schemes;
+            this.hostTypes = hostTypes;
+            this.latency = latency;
+            this.stageLatency = stageLatency;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            long total = 0;
+            for (long count : rejected) {
+                total += count;
+            }
+            return total;
+        }
+
+        // URLs rejected because component failed, URL being those that could not be split at all
+        public long getRejected(UrlComponent component) {
+            return rejected[component.ordinal()];
+        }
+
+        // Accepted URLs with the given scheme, in any case. Only http, https, ws, wss and ftp are counted by
+        // name, any other scheme gives the count of all of them.
+        public long getAcceptedWithScheme(String scheme) {
+            return schemes[schemeIndex(scheme, scheme.length())];
+        }
+
+        // Accepted URLs with the given type of host, null for those without authority
+        public long getAcceptedWithHostType(HostType hostType) {
+            return hostTypes[hostType == null ? HOST_TYPES.length : hostType.ordinal()];
+        }
+
+        public Map<String, Long> getRejectedByComponent() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (UrlComponent component : COMPONENTS) {
+                counts.put(component.name(), rejected[component.ordinal()]);
+            }
+            return Collections.unmodifiableMap(counts);
+        }
+
+        public Map<String, Long> getAcceptedByScheme() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < SCHEMES.length; i++) {
+                counts.put(SCHEMES[i], schemes[i]);
+            }
+            counts.put("other", schemes[SCHEMES.length]);
+            return Collections.unmodifiableMap(counts);
+        }
+
+        public Map<String, Long> getAcceptedByHostType() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (HostType hostType : HOST_TYPES) {
+                counts.put(hostType.name(), hostTypes[hostType.ordinal()]);
+            }
+            counts.put("none", hostTypes[HOST_TYPES.length]);
+            return Collections.unmodifiableMap(counts);
+        }
+
+        // Time spent in each scan, accepted or not
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        // Time spent in stage, one of SCHEME, AUTHORITY, PATH, QUERY or FRAGMENT. Null when stages are not
+        // timed. Only the stages a URL reaches are recorded.
+        public Histogram getStageLatency(UrlComponent stage) {
+            return stageLatency[stage.ordinal()];
+        }
+    }
+
+    // Latencies in nanoseconds, recorded in buckets of 1/8 of a power of two as HdrHistogram does with 3
+    // significant bits, so a value read back is at most 12.5% above the recorded one
+    public static final class Histogram {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Histogram(long[] counts, long sum, long max) {
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // Highest value of the bucket holding the given percentile, 0 when nothing was recorded
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(LatencyHistogram.highestValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    static final class LatencyHistogram {
+        // Values from 2^41 ns, about 36 minutes, share the last bucket
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = 8 * (MAX_EXPONENT - 1);
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(index(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        Histogram snapshot() {
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return new Histogram(snapshot, sum.sum(), max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            sum.reset();
+            max.reset();
+        }
+
+        // Values below 8 get a bucket each, then every power of two is split in 8 buckets
+        static int index(long value) {
+            if (value < 8) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            return 8 * (exponent - 2) + (int) ((value >>> (exponent - 3)) & 7);
+        }
+
+        static long highestValue(int index) {
+            if (index < 8) {
+                return index;
+            }
+            if (index == BUCKETS - 1) {
+                return Long.MAX_VALUE;
+            }
+            int exponent = index / 8 + 2;
+            long width = 1L << (exponent - 3);
+            return (8 + index % 8) * width + width - 1;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tandrade.web;
+
+import java.util.Map;
+
+// JMX view of UrlParserMetrics, registered with e.g.
+// ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("com.tandrade.web:type=UrlParserMetrics"))
+public interface UrlParserMetricsMXBean {
+    long getAccepted();
+
+    long getRejected();
+
+    Map<String, Long> getRejectedByComponent();
+
+    Map<String, Long> getAcceptedByScheme();
+
+    Map<String, Long> getAcceptedByHostType();
+
+    long getLatencyMedianNanos();
+
+    long getLatency99Nanos();
+
+    long getLatency999Nanos();
+
+    long getLatencyMaxNanos();
+
+    // Empty unless the stages are timed
+    Map<String, Long> getStageLatency99Nanos();
+
+    void reset();
+}
@@ -0,0 +1,291 @@
+package com.tandrade.web;
+
+import java.net.MalformedURLException;
+import java.util.Map;
+
+// Resolves relative references against a base Url, as in RFC 3986 section 5.2. The base components are
+// taken once from the parsed base, straight from the source of a LazyUrl, and every target is assembled in
+// a per thread char buffer where the paths are merged and their dot segments removed. The only allocations
+// per reference are the target String and its LazyUrl. Targets are validated like UrlParser.parse
+// validates URLs. Thread safe.
+public final class UrlResolver {
+    private static final ThreadLocal<UrlNormalizer.Buffer> buffers = ThreadLocal.withInitial(UrlNormalizer.Buffer::new);
+
+    private final CharSequence schemeText;
+    private final int schemeEnd;
+    // null when the base has no authority
+    private final CharSequence authorityText;
+    private final int authorityStart;
+    private final int authorityEnd;
+    private final CharSequence pathText;
+    private final int pathStart;
+    private final int pathEnd;
+    // null when the base has no query
+    private final CharSequence queryText;
+    private final int queryStart;
+    private final int queryEnd;
+
+    public UrlResolver(Url base) {
+        if (base instanceof LazyUrl) {
+            LazyUrl lazyBase = (LazyUrl) base;
+            CharSequence source = lazyBase.getSource();
+            schemeText = source;
+            schemeEnd = lazyBase.getEnd(UrlComponent.SCHEME);
+            authorityText = lazyBase.getStart(UrlComponent.AUTHORITY) >= 0 ? source : null;
+            authorityStart = lazyBase.getStart(UrlComponent.AUTHORITY);
+            authorityEnd = lazyBase.getEnd(UrlComponent.AUTHORITY);
+            pathText = source;
+            pathStart = lazyBase.getStart(UrlComponent.PATH);
+            pathEnd = lazyBase.getEnd(UrlComponent.PATH);
+            queryText = lazyBase.getStart(UrlComponent.QUERY) >= 0 ? source : null;
+            queryStart = lazyBase.getStart(UrlComponent.QUERY);
+            queryEnd = lazyBase.getEnd(UrlComponent.QUERY);
+            return;
+        }
+
+        schemeText = base.getProtocol();
+        schemeEnd = schemeText.length();
+        authorityText = base.getHostname() != null ? authority(base) : null;
+        authorityStart = 0;
+        authorityEnd = authorityText != null ? authorityText.length() : 0;
+        pathText = base.getPath();
+        pathStart = 0;
+        pathEnd = pathText.length();
+
+        QueryParameters queryParameters = base.getQueryParameters();
+        if (base.getQuery() != null) {
+            // As written, trailing '&'s and a bare '?' included
+            queryText = base.getQuery();
+            queryStart = 0;
+            queryEnd = queryText.length();
+        } else if (queryParameters != null) {
+            queryText = queryParameters.getSource();
+            queryStart = queryParameters.getStart();
+            queryEnd = queryParameters.getEnd();
+        } else {
+            // Urls built by subclasses may only have the arguments
+            queryText = base.getArguments() != null ? query(base.getArguments()) : null;
+            queryStart = 0;
+            queryEnd = queryText != null ? queryText.length() : 0;
+        }
+    }
+
+    public LazyUrl resolve(CharSequence reference) throws MalformedURLException {
+        String target = target(reference);
+        UrlScanner scanner = UrlParser.scanner();
+
+        if (!UrlParser.scan(scanner, target)) {
+            throw UrlParser.failure(target, scanner);
+        }
+
+        return new LazyUrl(target, scanner);
+    }
+
+    // Resolves like resolve, reporting a malformed target through status and returning null instead of
+    // throwing
+    public LazyUrl tryResolve(CharSequence reference, ParseStatus status) {
+        String target = target(reference);
+        return UrlParser.tryParse(target, status);
+    }
+
+    // Resolved references in input order, null where the target was rejected
+    public LazyUrl[] resolve(CharSequence[] references) {
+        return resolve(references, null);
+    }
+
+    // Same as resolve(references), also storing in failures, when given, the component that made each
+    // rejected target fail. failures must be at least as long as references.
+    public LazyUrl[] resolve(CharSequence[] references, UrlComponent[] failures) {
+        if (failures != null && failures.length < references.length) {
+            throw new IllegalArgumentException("failures holds " + failures.length + " entries for " + references.length + " references");
+        }
+
+        LazyUrl[] results = new LazyUrl[references.length];
+        UrlScanner scanner = UrlParser.scanner();
+        for (int i = 0; i < references.length; i++) {
+            String target = target(references[i]);
+            if (UrlParser.scan(scanner, target)) {
+                results[i] = new LazyUrl(target, scanner);
+            } else if (failures != null) {
+                failures[i] = scanner.error;
+            }
+        }
+        return results;
+    }
+
+    // RFC 3986 section 5.2.2, with the reference split as in appendix B
+    private String target(CharSequence reference) {
+        int n = reference.length();
+
+        int referenceSchemeEnd = -1;
+        for (int i = 0; i < n; i++) {
+            char c = reference.charAt(i);
+            if (c == ':') {
+                referenceSchemeEnd = i > 0 ? i : -1;
+                break;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+        }
+
+        int i = referenceSchemeEnd + 1;
+        int referenceAuthorityStart = -1;
+        int referenceAuthorityEnd = -1;
+        if (i + 1 < n && reference.charAt(i) == '/' && reference.charAt(i + 1) == '/') {
+            referenceAuthorityStart = i + 2;
+            i = referenceAuthorityStart;
+            while (i < n && !isDelimiter(reference.charAt(i))) {
+                i++;
+            }
+            referenceAuthorityEnd = i;
+        }
+
+        int referencePathStart = i;
+        while (i < n && reference.charAt(i) != '?' && reference.charAt(i) != '#') {
+            i++;
+        }
+        int referencePathEnd = i;
+
+        int referenceQueryStart = -1;
+        if (i < n && reference.charAt(i) == '?') {
+            referenceQueryStart = ++i;
+            while (i < n && reference.charAt(i) != '#') {
+                i++;
+            }
+        }
+        int referenceQueryEnd = i;
+        int referenceFragmentStart = i < n ? i + 1 : -1;
+
+        // Room for the longest target: the base up to its query, the reference, the '/' of a merge with an
+        // empty base path and the "/." guarding a path from looking like an authority
+        int baseQueryLength = queryText != null ? queryEnd - queryStart + 1 : 0;
+        char[] chars = buffers.get().get(schemeEnd + authorityEnd - authorityStart + pathEnd - pathStart + baseQueryLength + n + 8);
+        int length;
+        boolean authority;
+        int targetPathStart;
+
+        if (referenceSchemeEnd >= 0) {
+            length = copy(reference, 0, referenceSchemeEnd + 1, chars, 0);
+            authority = referenceAuthorityStart >= 0;
+            if (authority) {
+                length = copyAuthority(reference, referenceAuthorityStart, referenceAuthorityEnd, chars, length);
+            }
+            targetPathStart = length;
+            length = copy(reference, referencePathStart, referencePathEnd, chars, length);
+            length = UrlNormalizer.removeDotSegments(chars, targetPathStart, length);
+        } else {
+            length = copy(schemeText, 0, schemeEnd, chars, 0);
+            chars[length++] = ':';
+            authority = referenceAuthorityStart >= 0 || authorityText != null;
+            if (referenceAuthorityStart >= 0) {
+                length = copyAuthority(reference, referenceAuthorityStart, referenceAuthorityEnd, chars, length);
+            } else if (authorityText != null) {
+                length = copyAuthority(authorityText, authorityStart, authorityEnd, chars, length);
+            }
+
+            targetPathStart = length;
+            if (referenceAuthorityStart >= 0 || (referencePathEnd > referencePathStart && reference.charAt(referencePathStart) == '/')) {
+                length = copy(reference, referencePathStart, referencePathEnd, chars, length);
+                length = UrlNormalizer.removeDotSegments(chars, targetPathStart, length);
+            } else if (referencePathEnd == referencePathStart) {
+                length = copy(pathText, pathStart, pathEnd, chars, length);
+                if (referenceQueryStart < 0 && queryText != null) {
+                    // The base query is kept, as is the base path
+                    chars[length++] = '?';
+                    length = copy(queryText, queryStart, queryEnd, chars, length);
+                }
+            } else {
+                // Merge: the base path up to its last '/', or "/" after an authority and an empty path
+                if (authorityText != null && pathEnd == pathStart) {
+                    chars[length++] = '/';
+                } else {
+                    int lastSlash = pathEnd;
+                    while (lastSlash > pathStart && pathText.charAt(lastSlash - 1) != '/') {
+                        lastSlash--;
+                    }
+                    length = copy(pathText, pathStart, lastSlash, chars, length);
+                }
+                length = copy(reference, referencePathStart, referencePathEnd, chars, length);
+                length = UrlNormalizer.removeDotSegments(chars, targetPathStart, length);
+            }
+        }
+
+        if (!authority && length - targetPathStart >= 2 && chars[targetPathStart] == '/' && chars[targetPathStart + 1] == '/') {
+            // "a:/.//b" must not become "a://b", where b would be a host
+            System.arraycopy(chars, targetPathStart, chars, targetPathStart + 2, length - targetPathStart);
+            chars[targetPathStart] = '/';
+            chars[targetPathStart + 1] = '.';
+            length += 2;
+        }
+
+        if (referenceQueryStart >= 0) {
+            chars[length++] = '?';
+            length = copy(reference, referenceQueryStart, referenceQueryEnd, chars, length);
+        }
+        if (referenceFragmentStart >= 0) {
+            chars[length++] = '#';
+            length = copy(reference, referenceFragmentStart, n, chars, length);
+        }
+
+        return new String(chars, 0, length);
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    private static int copyAuthority(CharSequence text, int start, int end, char[] chars, int length) {
+        chars[length++] = '/';
+        chars[length++] = '/';
+        return copy(text, start, end, chars, length);
+    }
+
+    private static int copy(CharSequence text, int start, int end, char[] chars, int length) {
+        for (int i = start; i < end; i++) {
+            chars[length++] = text.charAt(i);
+        }
+        return length;
+    }
+
+    // The port is written as it was given. A Url built from its components only has its value, so a port
+    // equal to the default one is then left out.
+    private static String authority(Url base) {
+        StringBuilder authority = new StringBuilder();
+        if (base.getUsername() != null) {
+            authority.append(base.getUsername());
+            if (base.getPassword() != null) {
+                authority.append(':').append(base.getPassword());
+            }
+            authority.append('@');
+        }
+        authority.append(base.getHostname());
+        String port = Integer.toString(base.getPort());
+        int digits = base.getPortDigits();
+        if (digits > 0) {
+            authority.append(':');
+            for (int i = port.length(); i < digits; i++) {
+                authority.append('0');
+            }
+            authority.append(port);
+        } else if (digits < 0 && base.getPort() != 0
+                && base.getPort() != UrlScanner.defaultPort(base.getProtocol(), 0, base.getProtocol().length())) {
+            authority.append(':').append(port);
+        }
+        return authority.toString();
+    }
+
+    private static String query(Map<String, String> arguments) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> argument : arguments.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(argument.getKey());
+            if (argument.getValue() != null) {
+                query.append('=').append(argument.getValue());
+            }
+        }
+        return query.toString();
+    }
+}
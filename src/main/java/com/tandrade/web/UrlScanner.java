@@ -0,0 +1,508 @@
+package com.tandrade.web;
+
+import java.nio.ByteBuffer;
+
+// Single pass scanner that splits and validates a URL the same way the regexes in UrlParser do.
+// Components are kept as offsets into the scanned input, nothing is copied.
+final class UrlScanner {
+    // Character classes
+    static final int ALPHA = 1;
+    static final int SCHEME = 1 << 1;
+    static final int DIGIT = 1 << 2;
+    static final int HEX = 1 << 3;
+    static final int REG_NAME = 1 << 4;
+    static final int USERINFO = 1 << 5;
+    static final int PATH = 1 << 6;
+    static final int QUERY = 1 << 7;
+
+    private static final int[] CLASSES = new int[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] |= ALPHA | SCHEME;
+            CLASSES[c - 'a' + 'A'] |= ALPHA | SCHEME;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= DIGIT | HEX;
+        }
+        for (char c = 'a'; c <= 'f'; c++) {
+            CLASSES[c] |= HEX;
+            CLASSES[c - 'a' + 'A'] |= HEX;
+        }
+        CLASSES['-'] |= SCHEME;
+        CLASSES['+'] |= SCHEME;
+        CLASSES['.'] |= SCHEME;
+
+        // unreserved and sub-delims
+        for (char c : "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_-.~!$&'()*+,;=".toCharArray()) {
+            CLASSES[c] |= REG_NAME | USERINFO | PATH | QUERY;
+        }
+        CLASSES[':'] |= USERINFO | PATH | QUERY;
+        CLASSES['@'] |= PATH | QUERY;
+        CLASSES['/'] |= PATH | QUERY;
+        CLASSES['?'] |= QUERY;
+    }
+
+    int length;
+    int schemeEnd;
+    int authorityStart;
+    int authorityEnd;
+    // Index of '@', -1 when there is no userinfo
+    int userinfoEnd;
+    // -1 when the userinfo has no password
+    int passwordStart;
+    // -1 when there is no authority
+    int hostStart;
+    int hostEnd;
+    // -1 when no port was given
+    int portStart;
+    // Explicit port, or the default port for the scheme
+    int port;
+    int pathStart;
+    int pathEnd;
+    // -1 when there is no query
+    int queryStart;
+    int queryEnd;
+    // -1 when there is no fragment
+    int fragmentStart;
+    // Component that failed validation, null when the URL is valid
+    UrlComponent error;
+    int errorIndex;
+
+    // Set while UrlParserMetrics times the stages of a scan, with the time the current stage started
+    UrlParserMetrics metrics;
+    long stageStart;
+
+    // Below this length setting up the word reads costs more than they save
+    private static final int SWAR_MIN_LENGTH = 32;
+
+    private final HostParser host = new HostParser();
+    // Off only to compare with the char at a time scan
+    private final boolean swar;
+
+    UrlScanner() {
+        this(true);
+    }
+
+    UrlScanner(boolean swar) {
+        this.swar = swar;
+    }
+
+    boolean scan(CharSequence url) {
+        return scan(url, null);
+    }
+
+    // A profile in profiles matching the scheme, ignoring case, replaces the check of the scheme chars and
+    // the default port, and its authority rules apply on top of the generic ones
+    boolean scan(CharSequence url, SchemeProfile[] profiles) {
+        int n = url.length();
+        length = n;
+        authorityStart = authorityEnd = userinfoEnd = passwordStart = -1;
+        hostStart = hostEnd = portStart = -1;
+        queryStart = queryEnd = fragmentStart = -1;
+        port = 0;
+        error = null;
+        errorIndex = -1;
+        // Bytes of the input read 8 at a time by Swar, null when the input is not a ByteSequence
+        ByteSequence bytes = swar && n >= SWAR_MIN_LENGTH && url instanceof ByteSequence ? (ByteSequence) url : null;
+        byte[] wordsArray = bytes != null ? bytes.getArray() : null;
+        ByteBuffer wordsBuffer = bytes != null ? bytes.getBuffer() : null;
+        int wordsOffset = bytes != null ? bytes.getOffset() : 0;
+
+        // Scheme, a.k.a protocol
+        int i = 0;
+        int bad = -1;
+        for (; i < n; i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                break;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                return fail(UrlComponent.URL, i);
+            }
+            if (bad < 0 && !is(c, i == 0 ? ALPHA : SCHEME)) {
+                bad = i;
+            }
+        }
+        if (metrics != null) {
+            metrics.endStage(this, UrlComponent.SCHEME);
+        }
+        if (i == 0 || i == n) {
+            return fail(UrlComponent.URL, i);
+        }
+        schemeEnd = i;
+        pathStart = pathEnd = ++i;
+        SchemeProfile profile = profiles == null ? null : SchemeProfile.find(profiles, url, schemeEnd);
+        if (bad >= 0) {
+            if (profile == null) {
+                return deferredFail(url, UrlComponent.SCHEME, bad, i);
+            }
+            // A registered scheme may hold digits
+            bad = -1;
+        }
+        port = profile != null ? profile.getDefaultPort() : defaultPort(url, 0, schemeEnd);
+
+        // Authority
+        if (i + 1 < n && url.charAt(i) == '/' && url.charAt(i + 1) == '/') {
+            i = profile != null && !profile.isUserinfoAllowed() ? scanServer(url, i + 2, n) : scanAuthority(url, i + 2, n);
+            if (metrics != null) {
+                metrics.endStage(this, UrlComponent.AUTHORITY);
+            }
+            if (i < 0) {
+                return false;
+            }
+            if (profile != null && profile.isHostRequired() && hostStart == hostEnd) {
+                return deferredFail(url, UrlComponent.HOST, hostStart, i);
+            }
+            if (profile != null && port > 65535) {
+                port = profile.getDefaultPort();
+                return deferredFail(url, UrlComponent.PORT, portStart, i);
+            }
+        } else if (profile != null && profile.isHostRequired()) {
+            hostStart = hostEnd = i;
+            return deferredFail(url, UrlComponent.HOST, i, i);
+        }
+
+        // Path. With an authority it is either empty or starts with '/', without one it never starts
+        // with "//", so validating the characters is enough
+        pathStart = i;
+        for (; i < n; i++) {
+            if (bytes != null) {
+                i = Swar.skipPath(wordsArray, wordsBuffer, wordsOffset + i, wordsOffset + n) - wordsOffset;
+                if (i == n) {
+                    break;
+                }
+            }
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                break;
+            }
+            if (bad < 0 && !valid(url, i, n, c, PATH)) {
+                bad = i;
+            }
+        }
+        pathEnd = i;
+        if (metrics != null) {
+            metrics.endStage(this, UrlComponent.PATH);
+        }
+        if (bad >= 0) {
+            return deferredFail(url, UrlComponent.PATH, bad, i);
+        }
+
+        // Query
+        if (i < n && url.charAt(i) == '?') {
+            queryStart = ++i;
+            for (; i < n; i++) {
+                if (bytes != null) {
+                    i = Swar.skipQuery(wordsArray, wordsBuffer, wordsOffset + i, wordsOffset + n) - wordsOffset;
+                    if (i == n) {
+                        break;
+                    }
+                }
+                char c = url.charAt(i);
+                if (c == '#') {
+                    break;
+                }
+                if (bad < 0 && !valid(url, i, n, c, QUERY)) {
+                    bad = i;
+                }
+            }
+            queryEnd = i;
+            if (metrics != null) {
+                metrics.endStage(this, UrlComponent.QUERY);
+            }
+            if (bad >= 0) {
+                return deferredFail(url, UrlComponent.QUERY, bad, i);
+            }
+        }
+
+        // Fragment
+        if (i < n) {
+            fragmentStart = ++i;
+            for (; i < n; i++) {
+                if (bytes != null) {
+                    i = Swar.skipQuery(wordsArray, wordsBuffer, wordsOffset + i, wordsOffset + n) - wordsOffset;
+                    if (i == n) {
+                        break;
+                    }
+                }
+                char c = url.charAt(i);
+                if (isLineTerminator(c)) {
+                    return fail(UrlComponent.URL, i);
+                }
+                if (bad < 0 && !valid(url, i, n, c, QUERY)) {
+                    bad = i;
+                }
+            }
+            if (metrics != null) {
+                metrics.endStage(this, UrlComponent.FRAGMENT);
+            }
+            if (bad >= 0) {
+                return fail(UrlComponent.FRAGMENT, bad);
+            }
+        }
+
+        return true;
+    }
+
+    // Until an '@' shows up the characters may belong either to the userinfo or to the host and port, so
+    // both readings are tracked and settled when the authority ends.
+    int scanAuthority(CharSequence url, int start, int n) {
+        authorityStart = start;
+
+        int at = -1;
+        int userinfoBad = -1;
+        int userinfoColon = -1;
+        int colon = -1;
+        int bad = -1;
+        int nonDigit = -1;
+        int terminator = -1;
+        int i = start;
+        for (; i < n; i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@' && at < 0) {
+                at = i;
+                userinfoBad = bad;
+                userinfoColon = colon;
+                colon = bad = nonDigit = terminator = -1;
+                continue;
+            }
+            if (c == ':') {
+                if (colon < 0) {
+                    colon = i;
+                } else if (nonDigit < 0) {
+                    nonDigit = i;
+                }
+                continue;
+            }
+            if (bad < 0 && !valid(url, i, n, c, USERINFO)) {
+                bad = i;
+            }
+            if (colon >= 0) {
+                if (nonDigit < 0 && !is(c, DIGIT)) {
+                    nonDigit = i;
+                }
+                if (terminator < 0 && isLineTerminator(c)) {
+                    terminator = i;
+                }
+            }
+        }
+
+        authorityEnd = i;
+        if (at >= 0) {
+            userinfoEnd = at;
+            passwordStart = userinfoColon < 0 ? -1 : userinfoColon + 1;
+        }
+        hostStart = at < 0 ? start : at + 1;
+        hostEnd = colon < 0 ? i : colon;
+
+        // An IP literal runs to its closing bracket, so the colons it holds do not start the port
+        int literalEnd = ipLiteralEnd(url, hostStart, i);
+        if (literalEnd >= 0) {
+            hostEnd = literalEnd;
+            colon = literalEnd < i ? literalEnd : -1;
+            nonDigit = -1;
+            terminator = -1;
+            for (int j = literalEnd + 1; j < i; j++) {
+                char c = url.charAt(j);
+                if (nonDigit < 0 && !is(c, DIGIT)) {
+                    nonDigit = j;
+                }
+                if (terminator < 0 && isLineTerminator(c)) {
+                    terminator = j;
+                }
+            }
+        }
+        portStart = colon < 0 ? -1 : colon + 1;
+
+        // Same precedence as UrlParser.parse: authority format, userinfo, host and then port
+        if (terminator >= 0) {
+            deferredFail(url, UrlComponent.AUTHORITY, terminator, i);
+            return -1;
+        }
+        if (userinfoBad >= 0) {
+            deferredFail(url, UrlComponent.USERINFO, userinfoBad, i);
+            return -1;
+        }
+        if (literalEnd >= 0 ? !host.parseIpv6(url, hostStart + 1, hostEnd - 1) : bad >= 0 && bad < hostEnd) {
+            deferredFail(url, UrlComponent.HOST, literalEnd >= 0 ? hostStart : bad, i);
+            return -1;
+        }
+        if (colon >= 0) {
+            int digits = i - portStart;
+            if (nonDigit >= 0 || digits == 0 || digits > 5) {
+                deferredFail(url, UrlComponent.PORT, nonDigit >= 0 ? nonDigit : portStart, i);
+                return -1;
+            }
+            int value = 0;
+            for (int j = portStart; j < i; j++) {
+                value = value * 10 + (url.charAt(j) - '0');
+            }
+            port = value;
+        }
+
+        return i;
+    }
+
+    // Authority of a scheme without userinfo: a host, IP literal or reg-name, and an optional port. Without
+    // the '@' ambiguity scanAuthority deals with, every char of a valid authority is checked once, as it
+    // comes. Only a failing one is read a second time, to be reported like the generic path does.
+    private int scanServer(CharSequence url, int start, int n) {
+        authorityStart = hostStart = start;
+
+        int i = start;
+        if (i < n && url.charAt(i) == '[') {
+            while (i < n && url.charAt(i) != ']' && !isDelimiter(url.charAt(i))) {
+                i++;
+            }
+            if (i == n || url.charAt(i) != ']' || !host.parseIpv6(url, start + 1, i)) {
+                return failServer(url, start, n);
+            }
+            i++;
+        } else {
+            for (; i < n; i++) {
+                char c = url.charAt(i);
+                if (c == ':' || isDelimiter(c)) {
+                    break;
+                }
+                if (!valid(url, i, n, c, REG_NAME)) {
+                    return failServer(url, start, n);
+                }
+            }
+        }
+        hostEnd = i;
+
+        if (i < n && url.charAt(i) == ':') {
+            portStart = ++i;
+            int value = 0;
+            for (; i < n && is(url.charAt(i), DIGIT) && i - portStart < 5; i++) {
+                value = value * 10 + (url.charAt(i) - '0');
+            }
+            if (i == portStart || value > 65535 || i < n && !isDelimiter(url.charAt(i))) {
+                return failServer(url, start, n);
+            }
+            port = value;
+        } else if (i < n && !isDelimiter(url.charAt(i))) {
+            // An IP literal followed by something else than the port
+            hostEnd = -1;
+            return failServer(url, start, n);
+        }
+
+        authorityEnd = i;
+        return i;
+    }
+
+    // The authority is read again the generic way, so it fails with the same component and index as without
+    // a profile, and only then is the userinfo the profile does not allow reported
+    private int failServer(CharSequence url, int start, int n) {
+        hostEnd = portStart = -1;
+        int end = scanAuthority(url, start, n);
+        if (end >= 0 && userinfoEnd >= 0) {
+            deferredFail(url, UrlComponent.USERINFO, authorityStart, end);
+            return -1;
+        }
+        return end;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
+
+    // Kind of the host of the last URL scanned, null when it has no authority
+    HostType hostType(CharSequence url) {
+        return hostStart < 0 ? null : host.classify(url, hostStart, hostEnd);
+    }
+
+    // End of "[...]" at the start of the host when it only holds IPv6 characters and is followed by the port
+    // or the end of the authority, -1 otherwise
+    private static int ipLiteralEnd(CharSequence url, int start, int end) {
+        if (start >= end || url.charAt(start) != '[') {
+            return -1;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == ']') {
+                return i + 1 == end || url.charAt(i + 1) == ':' ? i + 1 : -1;
+            }
+            if (c != ':' && c != '.' && !is(c, HEX)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // A line terminator inside the fragment makes the whole URL unmatchable, which is reported before any
+    // component error
+    private boolean deferredFail(CharSequence url, UrlComponent error, int index, int from) {
+        int n = url.length();
+        int i = from;
+        while (i < n && url.charAt(i) != '#') {
+            i++;
+        }
+        for (i++; i < n; i++) {
+            if (isLineTerminator(url.charAt(i))) {
+                return fail(UrlComponent.URL, i);
+            }
+        }
+        return fail(error, index);
+    }
+
+    private boolean fail(UrlComponent error, int index) {
+        this.error = error;
+        this.errorIndex = index;
+        return false;
+    }
+
+    static int defaultPort(CharSequence url, int start, int end) {
+        return defaultPort(url, start, end, false);
+    }
+
+    // parse only knows the lower case schemes, normalization folds the case first
+    static int defaultPort(CharSequence url, int start, int end, boolean ignoreCase) {
+        switch (end - start) {
+            case 2:
+                return matches(url, start, "ws", ignoreCase) ? 80 : 0;
+            case 3:
+                if (matches(url, start, "ftp", ignoreCase)) {
+                    return 21;
+                }
+                return matches(url, start, "wss", ignoreCase) ? 443 : 0;
+            case 4:
+                return matches(url, start, "http", ignoreCase) ? 80 : 0;
+            case 5:
+                return matches(url, start, "https", ignoreCase) ? 443 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean matches(CharSequence url, int start, String expected, boolean ignoreCase) {
+        for (int i = 0; i < expected.length(); i++) {
+            char c = url.charAt(start + i);
+            // Setting 0x20 lower cases ASCII letters and leaves the other scheme chars as they are
+            if ((ignoreCase ? c | 0x20 : c) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valid(CharSequence url, int i, int n, char c, int mask) {
+        if (c == '%') {
+            return i + 2 < n && is(url.charAt(i + 1), HEX) && is(url.charAt(i + 2), HEX);
+        }
+        return is(c, mask);
+    }
+
+    static boolean is(char c, int mask) {
+        return c < 128 && (CLASSES[c] & mask) != 0;
+    }
+
+    // Line terminators as understood by '.' in java.util.regex
+    static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
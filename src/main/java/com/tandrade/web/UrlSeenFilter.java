@@ -0,0 +1,90 @@
+package com.tandrade.web;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Thread safe set of 64 bit URL fingerprints, see UrlFingerprinter, for dropping URLs already seen. The
+// fingerprints are kept in a single open addressing table of longs, 8 bytes per slot and no object per
+// entry, and added with a compare and set so threads never block each other. The table does not grow:
+// it is sized for the expected number of URLs up front. Two distinct URLs share a fingerprint with a
+// probability around 2^-64, in which case the second one is taken as already seen.
+public final class UrlSeenFilter {
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final ThreadLocal<UrlFingerprinter> fingerprinters = ThreadLocal.withInitial(UrlFingerprinter::new);
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final LongAdder size = new LongAdder();
+
+    // The table is kept at most 3/4 full for expectedUrls
+    public UrlSeenFilter(int expectedUrls) {
+        if (expectedUrls <= 0) {
+            throw new IllegalArgumentException("Invalid expected number of URLs specified: " + expectedUrls);
+        }
+
+        long capacity = 16;
+        while (capacity < expectedUrls * 4L / 3 + 1) {
+            capacity <<= 1;
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many expected URLs specified: " + expectedUrls);
+        }
+
+        this.slots = new AtomicLongArray((int) capacity);
+        this.mask = (int) capacity - 1;
+    }
+
+    // Returns true when url had not been seen yet
+    public boolean add(Url url) {
+        return add(fingerprinters.get().fingerprint(url));
+    }
+
+    public boolean contains(Url url) {
+        return contains(fingerprinters.get().fingerprint(url));
+    }
+
+    public boolean add(long fingerprint) {
+        // 0 marks an empty slot
+        long key = fingerprint == 0 ? 1 : fingerprint;
+
+        for (int i = index(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long slot = slots.get(i);
+            if (slot == 0) {
+                if (slots.compareAndSet(i, 0, key)) {
+                    size.increment();
+                    return true;
+                }
+                // Lost the slot to another thread, which may have added the same key
+                slot = slots.get(i);
+            }
+            if (slot == key) {
+                return false;
+            }
+        }
+        throw new IllegalStateException("Seen filter is full, " + slots.length() + " URLs added");
+    }
+
+    public boolean contains(long fingerprint) {
+        long key = fingerprint == 0 ? 1 : fingerprint;
+
+        for (int i = index(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long slot = slots.get(i);
+            if (slot == key) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    private int index(long key) {
+        // Fingerprints are already well mixed
+        return (int) (key ^ key >>> 32) & mask;
+    }
+}
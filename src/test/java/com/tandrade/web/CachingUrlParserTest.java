@@ -0,0 +1,80 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.net.MalformedURLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingUrlParserTest {
+
+    @ParameterizedTest
+    @EnumSource(CachingUrlParser.Eviction.class)
+    public void CachingUrlParser_parse_ShouldReturnCachedUrls(CachingUrlParser.Eviction eviction) throws MalformedURLException {
+        CachingUrlParser parser = new CachingUrlParser(100, eviction);
+
+        Url first = parser.parse("https://localhost:8000/search?q=text#hello");
+        Url second = parser.parse("https://localhost:8000/search?q=text#hello");
+
+        assertSame(first, second);
+        assertEquals("localhost", second.getHostname());
+        assertEquals(1, parser.getHits());
+        assertEquals(1, parser.getMisses());
+        assertEquals(0, parser.getEvictions());
+        assertEquals(1, parser.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CachingUrlParser.Eviction.class)
+    public void CachingUrlParser_parse_ShouldStayBounded(CachingUrlParser.Eviction eviction) throws MalformedURLException {
+        CachingUrlParser parser = new CachingUrlParser(500, eviction);
+
+        for (int i = 0; i < 5000; i++) {
+            parser.parse("https://example.org/" + i);
+        }
+
+        assertTrue(parser.size() <= 500);
+        assertEquals(5000, parser.getMisses());
+        assertEquals(5000 - parser.size(), parser.getEvictions());
+    }
+
+    @Test
+    public void CachingUrlParser_parse_ShouldKeepPopularUrlsWithTinyLfu() throws MalformedURLException {
+        CachingUrlParser parser = new CachingUrlParser(64, CachingUrlParser.Eviction.TINY_LFU);
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 32; i++) {
+                parser.parse("https://example.org/popular/" + i);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            parser.parse("https://example.org/scan/" + i);
+        }
+        long hits = parser.getHits();
+        for (int i = 0; i < 32; i++) {
+            parser.parse("https://example.org/popular/" + i);
+        }
+
+        assertEquals(hits + 32, parser.getHits());
+    }
+
+    @Test
+    public void CachingUrlParser_parse_ShouldNotCacheMalformedUrls() {
+        CachingUrlParser parser = new CachingUrlParser(10);
+
+        assertThrows(MalformedURLException.class, () -> parser.parse("https://exa mple.org/"));
+        assertEquals(0, parser.size());
+    }
+
+    @Test
+    public void CachingUrlParser_parse_ShouldReturnImmutableArguments() throws MalformedURLException {
+        Url parsedUrl = new CachingUrlParser(10).parse("https://localhost:8000/search?q=text");
+
+        assertThrows(UnsupportedOperationException.class, () -> parsedUrl.getArguments().put("q", "other"));
+    }
+}
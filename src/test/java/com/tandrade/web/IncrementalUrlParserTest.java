@@ -0,0 +1,226 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncrementalUrlParserTest {
+    private final IncrementalUrlParser parser = new IncrementalUrlParser();
+
+    @Test
+    public void IncrementalUrlParser_finish_ShouldParseChunksLikeParse() throws MalformedURLException {
+        parser.feed("https://us");
+        parser.feed("er:pw@exa");
+        parser.feed(ByteBuffer.wrap("mple.org:8443/a/b?x=1#".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(parser.feed("top"));
+
+        LazyUrl url = parser.finish();
+
+        assertEquals("https://user:pw@example.org:8443/a/b?x=1#top", url.toString());
+        assertEquals("example.org", url.getHostname());
+        assertEquals(8443, url.getPort());
+        assertEquals("pw", url.getPassword());
+        assertEquals("top", url.getDocumentPart());
+    }
+
+    @Test
+    public void IncrementalUrlParser_feed_ShouldConsumeByteBuffer() {
+        ByteBuffer chunk = ByteBuffer.wrap("http://example.org/".getBytes(StandardCharsets.US_ASCII));
+
+        assertTrue(parser.feed(chunk));
+        assertFalse(chunk.hasRemaining());
+        assertEquals(19, parser.length());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "ht_ | SCHEME | 2",
+            "1 | SCHEME | 0",
+            ": | URL | 0",
+            "http/ | URL | 4",
+            "http://exa mple | HOST | 10",
+            "http://u@h:8a | PORT | 12",
+            "http://u@h:123456 | PORT | 11",
+            "http://u@h@ | HOST | 10",
+            "http://h:8a/ | PORT | 10",
+            "http://[::1/ | HOST | 7",
+            "http://h/a b | PATH | 10",
+            "http://h/%4g | PATH | 9",
+            "http://h?a^b | QUERY | 10",
+            "http://h#a\\b | FRAGMENT | 10",
+    }, delimiter = '|')
+    public void IncrementalUrlParser_feed_ShouldRejectOnceUrlCannotBeValid(String prefix, UrlComponent component, int index) {
+        boolean rejected = false;
+        for (int i = 0; i < prefix.length() && !rejected; i++) {
+            rejected = !parser.feed(prefix.subSequence(i, i + 1));
+        }
+
+        assertTrue(rejected);
+        assertEquals(component, parser.getStatus().getFailedComponent());
+        assertEquals(index, parser.getStatus().getErrorIndex());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "http://us er | @h/ | HOST | USERINFO | 9",
+            "http://u:p^w | @h/ | PORT | USERINFO | 10",
+            "http://u%4g | @h/ | HOST | USERINFO | 8",
+            "http://a b | /c@d | HOST | HOST | 8",
+            "'http://a\n' | b/ | HOST | HOST | 8",
+            "'http://a\n' | b@h/ | HOST | USERINFO | 8",
+            "'http://u:p\n' | w@h/ | AUTHORITY | USERINFO | 10",
+            "'http://h:8\n' | 0/ | AUTHORITY | AUTHORITY | 10",
+    }, delimiter = '|')
+    public void IncrementalUrlParser_feed_ShouldReportUserinfoOnceAtShowsUp(String prefix, String rest, UrlComponent before,
+                                                                            UrlComponent after, int index) {
+        assertFalse(parser.feed(prefix));
+        assertEquals(before, parser.getStatus().getFailedComponent());
+
+        assertFalse(parser.feed(rest));
+        assertEquals(after, parser.getStatus().getFailedComponent());
+        assertEquals(index, parser.getStatus().getErrorIndex());
+
+        ParseStatus status = new ParseStatus();
+        UrlParser.tryParse(prefix + rest, status);
+        assertEquals(status.getFailedComponent(), parser.getStatus().getFailedComponent());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "'http://a\nb@h/' | USERINFO | 8",
+            "'http://a\nb/' | HOST | 8",
+            "'http://u@a\nb/' | HOST | 10",
+            "'http://u@h:8\n/' | AUTHORITY | 12",
+            "'http://u@[::1]:8\n/' | AUTHORITY | 16",
+            "'http://[::1\n]/' | AUTHORITY | 11",
+    }, delimiter = '|')
+    public void IncrementalUrlParser_feed_ShouldRejectLineTerminatorInAuthorityLikeParse(String url, UrlComponent component, int index) {
+        for (int i = 0; i < url.length(); i++) {
+            parser.feed(url.subSequence(i, i + 1));
+        }
+
+        assertEquals(component, parser.getStatus().getFailedComponent());
+        assertEquals(index, parser.getStatus().getErrorIndex());
+        ParseStatus status = new ParseStatus();
+        UrlParser.tryParse(url, status);
+        assertEquals(status.getFailedComponent(), parser.getStatus().getFailedComponent());
+        assertEquals(status.getErrorIndex(), parser.getStatus().getErrorIndex());
+    }
+
+    @Test
+    public void IncrementalUrlParser_feed_ShouldRejectLineTerminatorInFragment() {
+        assertTrue(parser.feed("http://h/#a"));
+        assertFalse(parser.feed("\n"));
+        assertEquals(UrlComponent.URL, parser.getStatus().getFailedComponent());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "http://user:pass",
+            "http://h:80",
+            "http://[::1]:8",
+            "http://u@[::1]:8",
+            "a:",
+            "a:/",
+            "a:/b%4",
+            "http://h/%",
+    })
+    public void IncrementalUrlParser_feed_ShouldNotRejectPrefixOfValidUrl(String prefix) {
+        assertTrue(parser.feed(prefix));
+        assertFalse(parser.isRejected());
+    }
+
+    @Test
+    public void IncrementalUrlParser_finish_ShouldThrowLikeParse() {
+        parser.feed("http://h:8a/");
+
+        MalformedURLException expected = assertThrows(MalformedURLException.class, () -> UrlParser.parse("http://h:8a/"));
+        MalformedURLException actual = assertThrows(MalformedURLException.class, parser::finish);
+        assertEquals(expected.getMessage(), actual.getMessage());
+
+        ParseStatus status = new ParseStatus();
+        assertNull(parser.tryFinish(status));
+        assertEquals(UrlComponent.PORT, status.getFailedComponent());
+    }
+
+    @Test
+    public void IncrementalUrlParser_reset_ShouldForgetPreviousUrl() throws MalformedURLException {
+        parser.feed("ht_tp://a");
+        assertTrue(parser.isRejected());
+
+        parser.reset();
+
+        assertTrue(parser.feed("http://b/"));
+        assertEquals("http://b/", parser.finish().toString());
+    }
+
+    @Test
+    public void IncrementalUrlParser_feed_ShouldAgreeWithParseOnRandomInput() {
+        String alphabet = "htps:/?#@&=%%41aZ09.-+_~[]! \n";
+        String[] endings = {"", "/", "a", "0", ":80/", "@h/", "]/", "41/", "?q", "#f"};
+        Random random = new Random(7230);
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder url = new StringBuilder(random.nextBoolean() ? "http://" : "a");
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                url.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String text = url.toString();
+
+            parser.reset();
+            int start = 0;
+            int rejectedAt = -1;
+            while (start < text.length()) {
+                int end = Math.min(text.length(), start + 1 + random.nextInt(4));
+                if (!parser.feed(text.substring(start, end)) && rejectedAt < 0) {
+                    rejectedAt = end;
+                }
+                start = end;
+            }
+
+            if (rejectedAt >= 0) {
+                // No ending can make a rejected prefix valid
+                for (String ending : endings) {
+                    assertFalse(UrlParser.isValid(text.substring(0, rejectedAt) + ending), text + " + " + ending);
+                }
+            }
+
+            assertSameResult(text);
+        }
+    }
+
+    private void assertSameResult(String url) {
+        String expected;
+        try {
+            expected = describe(UrlParser.parseLazy(url));
+        } catch (MalformedURLException e) {
+            expected = e.getMessage();
+        }
+
+        String actual;
+        try {
+            actual = describe(parser.finish());
+        } catch (MalformedURLException e) {
+            actual = e.getMessage();
+        }
+
+        assertEquals(expected, actual, url);
+    }
+
+    private static String describe(Url url) {
+        return url.getProtocol() + " " + url.getUsername() + " " + url.getPassword() + " " + url.getHostname() + " " + url.getPort()
+                + " " + url.getPath() + " " + url.getArguments() + " " + url.getDocumentPart();
+    }
+}
@@ -0,0 +1,137 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.MalformedURLException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfiledUrlParserTest {
+    private final ProfiledUrlParser parser = new ProfiledUrlParser();
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "http:foo | HOST | Invalid host specified: ",
+            "https:///a | HOST | Invalid host specified: ",
+            "http://:80/ | HOST | Invalid host specified: ",
+            "http://user:pw@example.org/ | USERINFO | Invalid userinfo specified: user:pw",
+            "http://exa mple.org:80/ | HOST | Invalid host specified: exa mple.org",
+            "http://[::g]/ | HOST | Invalid host specified: [",
+            "http://[::1]x/ | HOST | Invalid host specified: [",
+            "http://example.org:99999/ | PORT | Invalid path specified: 80",
+            "http://example.org:123456/ | PORT | Invalid path specified: 80",
+            "https://example.org:8a/ | PORT | Invalid path specified: 443",
+            "http://example.org:/ | PORT | Invalid path specified: 80",
+    }, delimiter = '|')
+    public void ProfiledUrlParser_parse_ShouldApplyHttpProfile(String url, UrlComponent component, String message) {
+        ParseStatus status = new ParseStatus();
+
+        MalformedURLException e = assertThrows(MalformedURLException.class, () -> parser.parse(url));
+
+        assertEquals(message, e.getMessage().trim());
+        assertNull(parser.tryParse(url, status));
+        assertEquals(component, status.getFailedComponent());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://example.org:8\n0/",
+            "http://u@example.org:8\r/",
+            "http://exa\nmple.org/",
+            "http://u@exa mple.org/",
+            "http://[::1/",
+            "http://example.org:8a/",
+    })
+    public void ProfiledUrlParser_parse_ShouldFailLikeGenericParser(String url) {
+        ParseStatus expected = new ParseStatus();
+        ParseStatus actual = new ParseStatus();
+
+        assertNull(UrlParser.tryParse(url, expected));
+        assertNull(parser.tryParse(url, actual));
+
+        assertEquals(expected.getFailedComponent(), actual.getFailedComponent());
+        assertEquals(expected.getErrorIndex(), actual.getErrorIndex());
+        assertEquals(assertThrows(MalformedURLException.class, () -> UrlParser.parse(url)).getMessage(),
+                assertThrows(MalformedURLException.class, () -> parser.parse(url)).getMessage());
+    }
+
+    @Test
+    public void ProfiledUrlParser_parse_ShouldUseProfileDefaultPort() throws MalformedURLException {
+        assertEquals(443, parser.parse("HTTPS://example.org/").getPort());
+        assertEquals(8080, parser.parse("http://example.org:8080/").getPort());
+        assertEquals("[::1]", parser.parse("http://[::1]:81/a?b#c").getHostname());
+    }
+
+    @Test
+    public void ProfiledUrlParser_register_ShouldAcceptSchemesWithDigits() throws MalformedURLException {
+        assertFalse(UrlParser.isValid("s3://bucket/key"));
+        assertFalse(parser.isValid("s3://bucket/key"));
+
+        parser.register(new SchemeProfile("s3", 0, true, false)).register(new SchemeProfile("gs", 0, true, false));
+
+        LazyUrl url = parser.parse("S3://bucket/photos/cat.jpg");
+        assertEquals("bucket", url.getHostname());
+        assertEquals("/photos/cat.jpg", url.getPath());
+        assertEquals(0, url.getPort());
+        assertFalse(parser.isValid("gs:/bucket/key"));
+        assertFalse(parser.isValid("s4://bucket/key"));
+    }
+
+    @Test
+    public void ProfiledUrlParser_register_ShouldReplaceProfileOfSameScheme() throws MalformedURLException {
+        SchemeProfile lenient = new SchemeProfile("HTTP", 8080, false, true);
+
+        parser.register(lenient);
+
+        assertSame(lenient, parser.getProfile("http"));
+        assertEquals(8080, parser.parse("http://u@example.org/").getPort());
+        assertTrue(parser.isValid("http:foo"));
+        assertFalse(parser.isValid("https://u@example.org/"));
+    }
+
+    @Test
+    public void SchemeProfile_ShouldRejectInvalidScheme() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemeProfile("3s", 0, true, false));
+        assertThrows(IllegalArgumentException.class, () -> new SchemeProfile("s_3", 0, true, false));
+        assertThrows(IllegalArgumentException.class, () -> new SchemeProfile("s3", 70000, true, false));
+    }
+
+    @Test
+    public void ProfiledUrlParser_parse_ShouldOnlyNarrowGenericParserOnRandomInput() throws MalformedURLException {
+        String alphabet = "htps:/?#@&=%%41aZ09.-+_~[]! \n";
+        Random random = new Random(2616);
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder url = new StringBuilder(random.nextBoolean() ? "http://" : random.nextBoolean() ? "https:" : "a");
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                url.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String text = url.toString();
+
+            LazyUrl generic = UrlParser.tryParse(text, new ParseStatus());
+            LazyUrl profiled = parser.tryParse(text, new ParseStatus());
+            boolean http = text.startsWith("http");
+            boolean expected = generic != null && (!http
+                    || generic.getHostname() != null && !generic.getHostname().isEmpty() && generic.getUsername() == null && generic.getPort() <= 65535);
+
+            assertEquals(expected, profiled != null, text);
+            if (profiled != null) {
+                assertEquals(describe(generic), describe(profiled), text);
+            }
+        }
+    }
+
+    private static String describe(Url url) {
+        return url.getProtocol() + " " + url.getHostname() + " " + url.getPort() + " " + url.getPath() + " " + url.getArguments() + " " + url.getDocumentPart();
+    }
+}
@@ -0,0 +1,64 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryParametersTest {
+
+    @Test
+    public void QueryParameters_ShouldKeepRepeatedNamesInOrder() throws MalformedURLException {
+        QueryParameters parameters = UrlParser.parse("https://example.org/?a=1&b&a=2&&c=x=y&&").getQueryParameters();
+
+        assertEquals(5, parameters.size());
+        assertEquals("a", parameters.getName(0));
+        assertEquals("1", parameters.getValue(0));
+        assertEquals("b", parameters.getName(1));
+        assertNull(parameters.getValue(1));
+        assertEquals("", parameters.getName(3));
+        assertNull(parameters.getValue(3));
+        assertEquals("c", parameters.getName(4));
+        assertEquals("x=y", parameters.getValue(4));
+        assertEquals(Arrays.asList("1", "2"), parameters.getAll("a"));
+        assertEquals("1", parameters.get("a"));
+        assertEquals(2, parameters.indexOf("a", 1));
+    }
+
+    @Test
+    public void QueryParameters_ShouldLookUpNames() throws MalformedURLException {
+        QueryParameters parameters = UrlParser.parseLazy(new StringBuilder("https://localhost:8000/search?q=text&json#hello")).getQueryParameters();
+
+        assertTrue(parameters.contains("json"));
+        assertTrue(parameters.contains(new StringBuilder("q")));
+        assertFalse(parameters.contains("js"));
+        assertNull(parameters.get("json"));
+        assertNull(parameters.get("missing"));
+        assertEquals(-1, parameters.indexOf("missing"));
+        assertTrue(parameters.getAll("missing").isEmpty());
+    }
+
+    @Test
+    public void QueryParameters_ShouldIterateInOrder() throws MalformedURLException {
+        List<String> pairs = new ArrayList<>();
+
+        UrlParser.parse("https://example.org/?z=1&a=2&z=3").getQueryParameters().forEach((name, value) -> pairs.add(name + "=" + value));
+
+        assertEquals(Arrays.asList("z=1", "a=2", "z=3"), pairs);
+    }
+
+    @Test
+    public void QueryParameters_ShouldBeNullWithoutQuery() throws MalformedURLException {
+        assertNull(UrlParser.parse("https://example.org/").getQueryParameters());
+        assertNull(UrlParser.parse("https://example.org/?").getQueryParameters());
+        assertNull(UrlParser.parseLazy("https://example.org/?#a").getQueryParameters());
+        assertEquals(0, UrlParser.parse("https://example.org/?&&").getQueryParameters().size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SwarTest {
+
+    @Test
+    public void Swar_skip_ShouldStopAtEverySpecialByteInEveryLane() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            for (int b = 0; b < 256; b++) {
+                char c = (char) b;
+                if (c == '%') {
+                    // Stepped over as an escape, see below
+                    continue;
+                }
+                // '$' and '~' are valid but flagged anyway
+                boolean pathPlain = c != '?' && c != '#' && c != '$' && c != '~' && UrlScanner.is(c, UrlScanner.PATH);
+                boolean queryPlain = c != '#' && c != '$' && c != '~' && UrlScanner.is(c, UrlScanner.QUERY);
+
+                for (int lane = 0; lane < 8; lane++) {
+                    byte[] bytes = "aaaaaaaaaaaaaaaa".getBytes(StandardCharsets.US_ASCII);
+                    bytes[lane + 3] = (byte) b;
+                    ByteBuffer words = ByteBuffer.wrap(bytes).order(order);
+
+                    assertEquals(pathPlain ? 11 : lane + 3, Swar.skipPath(null, words, 3, 16), order + " " + b + " " + lane);
+                    assertEquals(queryPlain ? 11 : lane + 3, Swar.skipQuery(null, words, 3, 16), order + " " + b + " " + lane);
+                    assertEquals(pathPlain ? 11 : lane + 3, Swar.skipPath(bytes, null, 3, 16), b + " " + lane);
+                    assertEquals(queryPlain ? 11 : lane + 3, Swar.skipQuery(bytes, null, 3, 16), b + " " + lane);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Swar_skip_ShouldStepOverValidEscapesOnly() {
+        byte[] bytes = "aa%4Faa%4gaaaaaaaaaa%".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer words = ByteBuffer.wrap(bytes);
+
+        assertEquals(7, Swar.skipQuery(bytes, null, 0, 21));
+        assertEquals(16, Swar.skipPath(bytes, null, 8, 21));
+        assertEquals(20, Swar.skipPath(bytes, null, 12, 21));
+        assertEquals(7, Swar.skipQuery(null, words, 0, 21));
+        assertEquals(16, Swar.skipPath(null, words, 8, 21));
+        assertEquals(20, Swar.skipPath(null, words, 12, 21));
+    }
+
+    @Test
+    public void UrlScanner_scan_ShouldGiveSameResultsWithAndWithoutSwar() {
+        String alphabet = "aZ09-._~!$&'()*+,;=:@/?#%%41[]\"<>\\^`{|}\u0000\n\r \u007f";
+        Random random = new Random(1964);
+        UrlScanner scalar = new UrlScanner(false);
+        UrlScanner scanner = new UrlScanner();
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder url = new StringBuilder(random.nextBoolean() ? "http://example.org/" : "a:");
+            int length = 20 + random.nextInt(120);
+            for (int j = 0; j < length; j++) {
+                // Mostly plain chars, as in real queries, so that whole words get skipped
+                url.append(random.nextInt(8) > 0 ? 'x' : random.nextInt(40) == 0 ? (char) (0x80 + random.nextInt(0x80)) : alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            byte[] bytes = url.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+            String expected = describe(scalar, new ByteSequence(bytes, 0, bytes.length));
+
+            assertEquals(expected, describe(scanner, url), url.toString());
+            assertEquals(expected, describe(scanner, new ByteSequence(bytes, 0, bytes.length)), url.toString());
+            for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 5).order(order);
+                direct.position(5);
+                direct.put(bytes).position(5);
+                assertEquals(expected, describe(scanner, new ByteSequence(direct)), url.toString());
+            }
+        }
+    }
+
+    private static String describe(UrlScanner scanner, CharSequence text) {
+        if (!scanner.scan(text)) {
+            return scanner.error + " " + scanner.errorIndex;
+        }
+        Url url = new LazyUrl(text, scanner);
+        return url.getProtocol() + " " + url.getHostname() + " " + url.getPath() + " " + url.getArguments() + " " + url.getDocumentPart();
+    }
+
+    @Test
+    public void UrlScanner_scan_ShouldReadEachNewArray() {
+        UrlScanner scanner = new UrlScanner();
+        byte[] valid = "http://example.org/aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.US_ASCII);
+        byte[] invalid = "http://example.org/aaaaaaaaaaaaaaaaaaaa aaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.US_ASCII);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(scanner.scan(new ByteSequence(valid, 0, valid.length)));
+            assertTrue(scanner.scan(new ByteSequence(valid, 0, valid.length)));
+            assertFalse(scanner.scan(new ByteSequence(invalid, 0, invalid.length)));
+            assertEquals(39, scanner.errorIndex);
+        }
+
+        // The same array changed in place between scans
+        byte[] bytes = valid.clone();
+        assertTrue(scanner.scan(new ByteSequence(bytes, 0, bytes.length)));
+        bytes[39] = ' ';
+        assertFalse(scanner.scan(new ByteSequence(bytes, 0, bytes.length)));
+        assertEquals(39, scanner.errorIndex);
+    }
+}
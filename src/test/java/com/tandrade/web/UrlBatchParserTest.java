@@ -0,0 +1,68 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UrlBatchParserTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void UrlBatchParser_parse_ShouldKeepInputOrder() throws MalformedURLException {
+        String[] urls = new String[10000];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = i % 7 == 0 ? "https://exa mple.org/" + i : "https://host" + i + ".example.org:" + (i % 65536) + "/path/" + i + "?id=" + i;
+        }
+        UrlComponent[] failures = new UrlComponent[urls.length];
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            LazyUrl[] parsedUrls = new UrlBatchParser(pool).parse(urls, failures);
+
+            for (int i = 0; i < urls.length; i++) {
+                if (i % 7 == 0) {
+                    assertNull(parsedUrls[i]);
+                    assertEquals(UrlComponent.HOST, failures[i]);
+                } else {
+                    Url expected = UrlParser.parse(urls[i]);
+                    assertNull(failures[i]);
+                    assertEquals(expected.getHostname(), parsedUrls[i].getHostname());
+                    assertEquals(expected.getPort(), parsedUrls[i].getPort());
+                    assertEquals(expected.getPath(), parsedUrls[i].getPath());
+                    assertEquals(expected.getArguments(), parsedUrls[i].getArguments());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void UrlBatchParser_parse_ShouldParseFiles() throws IOException {
+        Path file = Files.write(directory.resolve("urls.txt"), "https://example.org/a\nno-scheme\r\nurn:isbn:9780307476463\n".getBytes(StandardCharsets.US_ASCII));
+
+        List<LazyUrl> parsedUrls = new UrlBatchParser().parse(file);
+
+        assertEquals(3, parsedUrls.size());
+        assertEquals("/a", parsedUrls.get(0).getPath());
+        assertNull(parsedUrls.get(1));
+        assertEquals("urn", parsedUrls.get(2).getProtocol());
+    }
+
+    @Test
+    public void UrlBatchParser_parse_ShouldCheckFailuresLength() {
+        assertThrows(IllegalArgumentException.class, () -> new UrlBatchParser().parse(new String[2], new UrlComponent[1]));
+    }
+}
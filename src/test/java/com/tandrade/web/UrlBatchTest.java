@@ -0,0 +1,153 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlBatchTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void UrlBatch_get_ShouldMatchParse() throws MalformedURLException {
+        String[] urls = new String[5000];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = i % 9 == 0 ? "http://h:8a/" + i
+                    : i % 5 == 0 ? "mailto:user" + i + "@example.org"
+                    : "https://user:pw@host" + (i % 13) + ".example.org:" + (i % 65536) + "/path/" + i + "?id=" + i + "#f" + i;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            UrlBatch batch = new UrlBatchParser(pool).parseBatch(urls);
+
+            assertEquals(urls.length, batch.size());
+            for (int i = 0; i < urls.length; i++) {
+                if (i % 9 == 0) {
+                    assertFalse(batch.isValid(i));
+                    assertEquals(UrlComponent.PORT, batch.getFailure(i));
+                    assertNull(batch.get(i));
+                    assertEquals(-1, batch.getHostId(i));
+                } else {
+                    Url expected = UrlParser.parse(urls[i]);
+                    LazyUrl actual = batch.get(i);
+                    assertTrue(batch.isValid(i));
+                    assertNull(batch.getFailure(i));
+                    assertEquals(urls[i], actual.toString());
+                    assertEquals(describe(expected), describe(actual));
+                    assertEquals(expected.getPort(), batch.getPort(i));
+                    assertEquals(expected.getProtocol(), batch.getScheme(batch.getSchemeId(i)));
+                    assertEquals(expected.getHostname(), batch.getHostId(i) < 0 ? null : batch.getHost(batch.getHostId(i)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void UrlBatch_countByHost_ShouldCountRowsPerDistinctHost() {
+        String[] urls = new String[3000];
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            String host = "h" + (i * 7 % 101) + ".example.org";
+            urls[i] = "http://" + host + "/" + i;
+            expected.merge(host, 1, Integer::sum);
+        }
+
+        UrlBatch batch = new UrlBatchParser().parseBatch(urls);
+        int[] counts = batch.countByHost();
+
+        assertEquals(101, batch.getHostCount());
+        assertEquals(101, counts.length);
+        for (int hostId = 0; hostId < counts.length; hostId++) {
+            assertEquals(expected.get(batch.getHost(hostId)).intValue(), counts[hostId]);
+        }
+        assertEquals(expected.get("h7.example.org").intValue(), batch.countHost("h7.example.org"));
+        assertEquals(0, batch.countHost("h7.example.com"));
+        assertEquals(-1, batch.findHost("H7.example.org"));
+    }
+
+    @Test
+    public void UrlBatch_countByScheme_ShouldKeepSchemesAsWritten() {
+        UrlBatch batch = new UrlBatchParser().parseBatch(Arrays.asList(
+                "http://a/", "HTTP://a/", "http://b/", "mailto:x", "a b", "http://[::1]/"));
+
+        assertEquals(6, batch.size());
+        assertEquals(5, batch.getAcceptedCount());
+        assertEquals(3, batch.getSchemeCount());
+        assertEquals(3, batch.countByScheme()[batch.getSchemeId(0)]);
+        assertEquals(1, batch.countByScheme()[batch.getSchemeId(1)]);
+        assertEquals(-1, batch.getSchemeId(4));
+        assertEquals(-1, batch.getHostId(3));
+        assertEquals(3, batch.getHostCount());
+        assertEquals(2, batch.countHost("a"));
+        assertEquals(1, batch.countHost("[::1]"));
+    }
+
+    @Test
+    public void UrlBatch_getArenaLength_ShouldHoldOnlyAcceptedRows() {
+        UrlBatch batch = new UrlBatchParser().parseBatch(new CharSequence[]{"http://a/", "ht tp://a/", "", "b:c"});
+
+        assertEquals(12, batch.getArenaLength());
+        assertEquals("b:c", batch.get(3).toString());
+        assertEquals(UrlComponent.URL, batch.getFailure(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.getHost(batch.getHostCount()));
+    }
+
+    @Test
+    public void UrlBatchParser_parseBatch_ShouldReadFileLines() throws IOException {
+        Path file = directory.resolve("urls.txt");
+        Files.write(file, "http://a.example.org/1\r\nnot a url\n\nhttps://b.example.org/2\n".getBytes(StandardCharsets.US_ASCII));
+
+        UrlBatch batch = new UrlBatchParser().parseBatch(file);
+
+        assertEquals(3, batch.size());
+        assertEquals("http://a.example.org/1", batch.get(0).toString());
+        assertFalse(batch.isValid(1));
+        assertEquals("b.example.org", batch.get(2).getHostname());
+    }
+
+    @Test
+    public void UrlBatch_Dictionary_ShouldGrowPastInitialCapacity() {
+        byte[] arena = new byte[4000];
+        for (int i = 0; i < 1000; i++) {
+            String value = Integer.toString(i, 36);
+            while (value.length() < 4) {
+                value = "0" + value;
+            }
+            System.arraycopy(value.getBytes(StandardCharsets.US_ASCII), 0, arena, i * 4, 4);
+        }
+
+        UrlBatch.Dictionary dictionary = new UrlBatch.Dictionary();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, dictionary.add(arena, i * 4, 4));
+            }
+        }
+
+        assertEquals(1000, dictionary.size);
+        assertEquals(999, dictionary.find("00rr"));
+        assertEquals(-1, dictionary.find("00rs"));
+    }
+
+    private static String describe(Url url) {
+        return url.getProtocol() + " " + url.getUsername() + " " + url.getPassword() + " " + url.getHostname() + " " + url.getPort()
+                + " " + url.getPath() + " " + url.getArguments() + " " + url.getDocumentPart();
+    }
+}
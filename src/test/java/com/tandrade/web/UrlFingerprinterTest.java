@@ -0,0 +1,161 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlFingerprinterTest {
+    private final UrlFingerprinter fingerprinter = new UrlFingerprinter();
+
+    @ParameterizedTest
+    @CsvSource({
+            "HTTP://Example.COM:80/a/./b/../c?x=1&y=2#top, http://example.com/a/c?y=2&x=1",
+            "https://example.org, https://example.org:443/",
+            "https://example.org/?, https://example.org/",
+            "https://example.org/?a&&, https://example.org/?a",
+            "https://example.org/%7Euser?q=%2f, https://example.org/~user?q=%2F",
+            "https://u%7E:p@example.org/, https://u~:p@example.org/",
+            "http://[FE80::1]/, http://[fe80::1]:80/",
+    })
+    public void UrlFingerprinter_fingerprint_ShouldMatchEquivalentUrls(String first, String second) throws MalformedURLException {
+        assertEquals(fingerprint128(UrlParser.parse(first)), fingerprint128(UrlParser.parse(second)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "https://example.org/a, https://example.org/b",
+            "https://example.org/a, http://example.org/a",
+            "https://example.org:8443/, https://example.org/",
+            "https://example.org/?a=1&a=1, https://example.org/?a=1",
+            "https://example.org/?a, https://example.org/?a=",
+            "https://example.org/?a=1&b=2, https://example.org/?a=2&b=1",
+            "https://example.org/?a+b, https://example.org/?a%20b",
+            "https://u@example.org/, https://u:@example.org/",
+            "a:/.//b, a://b",
+            "a:b, a:/b",
+            "http://h:0/, http://h/",
+            "http://h:08443/, http://h:8443/",
+    })
+    public void UrlFingerprinter_fingerprint_ShouldTellDistinctUrlsApart(String first, String second) throws MalformedURLException {
+        assertNotEquals(fingerprint128(UrlParser.parse(first)), fingerprint128(UrlParser.parse(second)));
+        assertNotEquals(fingerprint128(UrlParser.parseLazy(first)), fingerprint128(UrlParser.parseLazy(second)));
+    }
+
+    @Test
+    public void UrlFingerprinter_fingerprint_ShouldNotDependOnHowUrlWasParsed() throws MalformedURLException {
+        String[] tokens = {"HTTP", "https", "://", ":", "@", "/", "/", "..", ".", "%2e", "%2F", "%7E", "A", "b", "?", "#", "&", "=", "80", "443", "0", "[::A]"};
+        Random random = new Random(1313);
+
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder url = new StringBuilder(tokens[random.nextInt(2)]).append(':');
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                url.append(tokens[random.nextInt(tokens.length)]);
+            }
+            if (!UrlParser.isValid(url)) {
+                continue;
+            }
+
+            String expected = fingerprint128(UrlParser.parse(url.toString()));
+            byte[] bytes = url.toString().getBytes(StandardCharsets.US_ASCII);
+            assertEquals(expected, fingerprint128(UrlParser.parseLazy(url)), url.toString());
+            assertEquals(expected, fingerprint128(UrlParser.parse(bytes, 0, bytes.length)), url.toString());
+            assertEquals(expected, fingerprint128(UrlParser.parse(UrlNormalizer.normalize(url))), url.toString());
+        }
+    }
+
+    @Test
+    public void UrlFingerprinter_fingerprint_ShouldReturnHighHalf() throws MalformedURLException {
+        long fingerprint = fingerprinter.fingerprint(UrlParser.parse("https://example.org/"));
+
+        assertEquals(fingerprint, fingerprinter.getHigh());
+        assertNotEquals(fingerprinter.getHigh(), fingerprinter.getLow());
+    }
+
+    @Test
+    public void UrlSeenFilter_add_ShouldReportNewUrls() throws MalformedURLException {
+        UrlSeenFilter filter = new UrlSeenFilter(100);
+
+        assertTrue(filter.add(UrlParser.parse("https://example.org/a?x=1&y=2")));
+        assertFalse(filter.add(UrlParser.parse("HTTPS://EXAMPLE.org:443/a?y=2&x=1#top")));
+        assertTrue(filter.contains(UrlParser.parseLazy("https://example.org/./a?x=1&y=2")));
+        assertFalse(filter.contains(UrlParser.parse("https://example.org/b")));
+        assertTrue(filter.add(0));
+        assertFalse(filter.add(0));
+        assertEquals(2, filter.size());
+    }
+
+    @Test
+    public void UrlSeenFilter_add_ShouldFailWhenFull() {
+        UrlSeenFilter filter = new UrlSeenFilter(1);
+
+        for (int i = 1; i <= 16; i++) {
+            assertTrue(filter.add(i * 0x9E3779B97F4A7C15L));
+        }
+        assertThrows(IllegalStateException.class, () -> filter.add(17 * 0x9E3779B97F4A7C15L));
+    }
+
+    @Test
+    public void UrlSeenFilter_add_ShouldCountEachUrlOnceAcrossThreads() throws Exception {
+        UrlSeenFilter filter = new UrlSeenFilter(10000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> added = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread * 1000;
+                added.add(executor.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < 4000; i++) {
+                        if (filter.add(UrlParser.parse("https://example.org/" + (offset + i)))) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> count : added) {
+                total += count.get();
+            }
+            assertEquals(7000, total);
+            assertEquals(7000, filter.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void UrlFingerprinter_fingerprint_ShouldSpreadFingerprints() throws MalformedURLException {
+        Set<Long> fingerprints = new HashSet<>();
+
+        for (int i = 0; i < 10000; i++) {
+            fingerprints.add(fingerprinter.fingerprint(UrlParser.parse("https://example.org/?id=" + i)));
+        }
+
+        assertEquals(10000, fingerprints.size());
+    }
+
+    private String fingerprint128(Url url) {
+        fingerprinter.fingerprint(url);
+        return String.format("%016x%016x", fingerprinter.getHigh(), fingerprinter.getLow());
+    }
+}
@@ -0,0 +1,159 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlParserMetricsTest {
+
+    @AfterEach
+    public void tearDown() {
+        UrlParser.setMetrics(null);
+    }
+
+    @Test
+    public void UrlParserMetrics_getSnapshot_ShouldCountUrlsByOutcome() throws Exception {
+        UrlParserMetrics metrics = new UrlParserMetrics();
+        UrlParser.setMetrics(metrics);
+
+        UrlParser.parse("https://example.org/");
+        UrlParser.parseLazy("HTTP://10.0.0.1/");
+        UrlParser.isValid("mailto:someone");
+        UrlParser.tryParse("svn+ssh://[::1]/", new ParseStatus());
+        assertThrows(MalformedURLException.class, () -> UrlParser.parse("http://h:8a/"));
+        assertFalse(UrlParser.isValid("ht_tp://h/"));
+        assertFalse(UrlParser.isValid("no scheme"));
+
+        UrlParserMetrics.Snapshot snapshot = metrics.getSnapshot();
+        assertEquals(4, snapshot.getAccepted());
+        assertEquals(3, snapshot.getRejected());
+        assertEquals(1, snapshot.getRejected(UrlComponent.PORT));
+        assertEquals(1, snapshot.getRejected(UrlComponent.SCHEME));
+        assertEquals(1, snapshot.getRejected(UrlComponent.URL));
+        assertEquals(0, snapshot.getRejected(UrlComponent.HOST));
+        assertEquals(1, snapshot.getAcceptedWithScheme("https"));
+        assertEquals(1, snapshot.getAcceptedWithScheme("http"));
+        assertEquals(2, snapshot.getAcceptedWithScheme("other"));
+        assertEquals(1, snapshot.getAcceptedWithHostType(HostType.REG_NAME));
+        assertEquals(1, snapshot.getAcceptedWithHostType(HostType.IPV4));
+        assertEquals(1, snapshot.getAcceptedWithHostType(HostType.IPV6));
+        assertEquals(1, snapshot.getAcceptedWithHostType(null));
+        assertEquals(7, snapshot.getLatency().getCount());
+        assertNull(snapshot.getStageLatency(UrlComponent.PATH));
+    }
+
+    @Test
+    public void UrlParserMetrics_getSnapshot_ShouldCountOtherParsers() throws Exception {
+        UrlParserMetrics metrics = new UrlParserMetrics();
+        UrlParser.setMetrics(metrics);
+
+        new UrlResolver(UrlParser.parse("http://a/b")).resolve("c");
+        new UrlBatchParser().parse(new CharSequence[]{"http://a/", "a b"});
+        IncrementalUrlParser parser = new IncrementalUrlParser();
+        parser.feed("ws://a/");
+        parser.finish();
+
+        UrlParserMetrics.Snapshot snapshot = metrics.getSnapshot();
+        assertEquals(4, snapshot.getAccepted());
+        assertEquals(1, snapshot.getRejected(UrlComponent.URL));
+        assertEquals(1, snapshot.getAcceptedWithScheme("ws"));
+    }
+
+    @Test
+    public void UrlParserMetrics_getSnapshot_ShouldTimeStagesReached() {
+        UrlParserMetrics metrics = new UrlParserMetrics(true);
+        UrlParser.setMetrics(metrics);
+
+        UrlParser.isValid("https://example.org/a?b#c");
+        UrlParser.isValid("a:b");
+        UrlParser.isValid("https://exa mple.org/a");
+
+        UrlParserMetrics.Snapshot snapshot = metrics.getSnapshot();
+        assertEquals(3, snapshot.getStageLatency(UrlComponent.SCHEME).getCount());
+        assertEquals(2, snapshot.getStageLatency(UrlComponent.AUTHORITY).getCount());
+        assertEquals(2, snapshot.getStageLatency(UrlComponent.PATH).getCount());
+        assertEquals(1, snapshot.getStageLatency(UrlComponent.QUERY).getCount());
+        assertEquals(1, snapshot.getStageLatency(UrlComponent.FRAGMENT).getCount());
+        assertEquals(5, metrics.getStageLatency99Nanos().size());
+    }
+
+    @Test
+    public void UrlParser_setMetrics_ShouldStopRecordingWhenCleared() {
+        UrlParserMetrics metrics = new UrlParserMetrics();
+        UrlParser.setMetrics(metrics);
+        UrlParser.isValid("http://a/");
+
+        UrlParser.setMetrics(null);
+        UrlParser.isValid("http://a/");
+
+        assertNull(UrlParser.getMetrics());
+        assertEquals(1, metrics.getAccepted());
+        metrics.reset();
+        assertEquals(0, metrics.getSnapshot().getLatency().getCount());
+    }
+
+    @Test
+    public void UrlParserMetrics_Histogram_ShouldKeepValuesWithinBucketPrecision() {
+        Random random = new Random(8);
+
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int index = UrlParserMetrics.LatencyHistogram.index(value);
+            long highest = UrlParserMetrics.LatencyHistogram.highestValue(index);
+
+            assertTrue(highest >= value, Long.toString(value));
+            if (value < 1L << 40) {
+                assertTrue(highest <= value + value / 8, Long.toString(value));
+                assertTrue(index == 0 || UrlParserMetrics.LatencyHistogram.highestValue(index - 1) < value, Long.toString(value));
+            }
+        }
+    }
+
+    @Test
+    public void UrlParserMetrics_Histogram_ShouldReadPercentiles() {
+        UrlParserMetrics.LatencyHistogram histogram = new UrlParserMetrics.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        UrlParserMetrics.Histogram snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(500.5, snapshot.getMean());
+        assertEquals(511, snapshot.getValueAtPercentile(50));
+        assertEquals(1000, snapshot.getValueAtPercentile(99.9));
+        assertEquals(1, snapshot.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void UrlParserMetrics_ShouldBeReadableThroughJmx() throws Exception {
+        UrlParserMetrics metrics = new UrlParserMetrics();
+        UrlParser.setMetrics(metrics);
+        UrlParser.isValid("http://a/");
+        UrlParser.isValid("http://a b/");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.tandrade.web:type=UrlParserMetrics,name=test");
+        server.registerMBean(metrics, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "Accepted"));
+            assertEquals(1L, server.getAttribute(name, "Rejected"));
+            assertNotNull(server.getAttribute(name, "RejectedByComponent"));
+            assertTrue((Long) server.getAttribute(name, "LatencyMaxNanos") >= 0);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
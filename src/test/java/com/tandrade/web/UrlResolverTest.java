@@ -0,0 +1,140 @@
+package com.tandrade.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UrlResolverTest {
+    private static final String BASE = "http://a/b/c/d;p?q";
+
+    // Examples of RFC 3986 section 5.4
+    @ParameterizedTest
+    @CsvSource(value = {
+            "g:h | g:h",
+            "g | http://a/b/c/g",
+            "./g | http://a/b/c/g",
+            "g/ | http://a/b/c/g/",
+            "/g | http://a/g",
+            "//g | http://g",
+            "?y | http://a/b/c/d;p?y",
+            "g?y | http://a/b/c/g?y",
+            "'#s' | http://a/b/c/d;p?q#s",
+            "g#s | http://a/b/c/g#s",
+            "g?y#s | http://a/b/c/g?y#s",
+            ";x | http://a/b/c/;x",
+            "g;x | http://a/b/c/g;x",
+            "g;x?y#s | http://a/b/c/g;x?y#s",
+            "'' | http://a/b/c/d;p?q",
+            ". | http://a/b/c/",
+            "./ | http://a/b/c/",
+            ".. | http://a/b/",
+            "../ | http://a/b/",
+            "../g | http://a/b/g",
+            "../.. | http://a/",
+            "../../ | http://a/",
+            "../../g | http://a/g",
+            "../../../g | http://a/g",
+            "../../../../g | http://a/g",
+            "/./g | http://a/g",
+            "/../g | http://a/g",
+            "g. | http://a/b/c/g.",
+            ".g | http://a/b/c/.g",
+            "g.. | http://a/b/c/g..",
+            "..g | http://a/b/c/..g",
+            "./../g | http://a/b/g",
+            "./g/. | http://a/b/c/g/",
+            "g/./h | http://a/b/c/g/h",
+            "g/../h | http://a/b/c/h",
+            "g;x=1/./y | http://a/b/c/g;x=1/y",
+            "g;x=1/../y | http://a/b/c/y",
+            "g?y/./x | http://a/b/c/g?y/./x",
+            "g?y/../x | http://a/b/c/g?y/../x",
+            "g#s/./x | http://a/b/c/g#s/./x",
+            "g#s/../x | http://a/b/c/g#s/../x",
+            "http:g | http:g",
+    }, delimiter = '|')
+    public void UrlResolver_resolve_ShouldFollowRfcExamples(String reference, String expected) throws MalformedURLException {
+        assertEquals(expected, new UrlResolver(UrlParser.parseLazy(BASE)).resolve(reference).toString());
+        assertEquals(expected, new UrlResolver(UrlParser.parse(BASE)).resolve(reference).toString());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "https://example.org | a/b | https://example.org/a/b",
+            "https://u:p@example.org:8443/x/y?z | ../w | https://u:p@example.org:8443/w",
+            "https://example.org:443/x | y | https://example.org:443/y",
+            "urn:isbn:9780307476463 | other | urn:other",
+            "a:/b/c | ..//d | a:/.//d",
+            "http://[::1]/a/ | b?c=d | http://[::1]/a/b?c=d",
+    }, delimiter = '|')
+    public void UrlResolver_resolve_ShouldResolveAgainstOtherBases(String base, String reference, String expected) throws MalformedURLException {
+        assertEquals(expected, new UrlResolver(UrlParser.parseLazy(base)).resolve(reference).toString());
+    }
+
+    @Test
+    public void UrlResolver_resolve_ShouldRejectMalformedTargets() throws MalformedURLException {
+        UrlResolver resolver = new UrlResolver(UrlParser.parseLazy(BASE));
+        ParseStatus status = new ParseStatus();
+
+        MalformedURLException exception = assertThrows(MalformedURLException.class, () -> resolver.resolve("a b"));
+        assertEquals("Invalid path specified: /b/c/a b", exception.getMessage());
+        assertNull(resolver.tryResolve("//exa mple.org/", status));
+        assertEquals(UrlComponent.HOST, status.getFailedComponent());
+        assertEquals("http://a/b/c/g", resolver.tryResolve("g", status).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"http://h:80/a/b", "http://h:0080/a/b", "http://h/a/b?a&", "http://h/a/b?", "http://u:p@h:8080/a?x=1#f"})
+    public void UrlResolver_resolve_ShouldResolveAgainstEagerBaseLikeLazyBase(String base) throws MalformedURLException {
+        UrlResolver lazy = new UrlResolver(UrlParser.parseLazy(base));
+        UrlResolver eager = new UrlResolver(UrlParser.parse(base));
+
+        for (String reference : new String[]{"", "#g", "c", "../c?y", "?y", "//x/y"}) {
+            assertEquals(lazy.resolve(reference).toString(), eager.resolve(reference).toString(), reference);
+        }
+    }
+
+    @Test
+    public void UrlResolver_resolve_ShouldKeepLongBaseQuery() throws MalformedURLException {
+        StringBuilder query = new StringBuilder("q=");
+        for (int i = 0; i < 600; i++) {
+            query.append((char) ('a' + i % 26));
+        }
+        String base = "http://a/b/c/d;p?" + query;
+
+        for (Url baseUrl : new Url[]{UrlParser.parseLazy(base), UrlParser.parse(base)}) {
+            UrlResolver resolver = new UrlResolver(baseUrl);
+
+            assertEquals(base, resolver.resolve("").toString());
+            assertEquals(base + "#f", resolver.resolve("#f").toString());
+            LazyUrl[] urls = resolver.resolve(new CharSequence[]{"#f", "g"}, null);
+            assertEquals(base + "#f", urls[0].toString());
+            assertEquals("http://a/b/c/g", urls[1].toString());
+        }
+    }
+
+    @Test
+    public void UrlResolver_resolve_ShouldResolveBatches() throws MalformedURLException {
+        UrlResolver resolver = new UrlResolver(UrlParser.parseLazy(new ByteSequence("http://a/b/c/d;p?q".getBytes(StandardCharsets.US_ASCII), 0, 18)));
+        CharSequence[] references = {"g", "../g?x", "1a:b", "#top", new StringBuilder("//h/i")};
+        UrlComponent[] failures = new UrlComponent[references.length];
+
+        LazyUrl[] urls = resolver.resolve(references, failures);
+
+        assertEquals("http://a/b/c/g", urls[0].toString());
+        assertEquals("http://a/b/g?x", urls[1].toString());
+        assertNull(urls[2]);
+        assertEquals(UrlComponent.SCHEME, failures[2]);
+        assertEquals("http://a/b/c/d;p?q#top", urls[3].toString());
+        assertEquals("h", urls[4].getHostname());
+        assertNull(failures[0]);
+    }
+}